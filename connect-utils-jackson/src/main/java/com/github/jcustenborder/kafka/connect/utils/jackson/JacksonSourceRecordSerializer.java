@@ -0,0 +1,280 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.github.jcustenborder.kafka.connect.utils.data.SourceRecordSerializer;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SourceRecordSerializer that writes records as json using {@link ObjectMapperFactory#INSTANCE}.
+ * Every value other than a string or boolean is written with a tag naming its type, so the source
+ * partition, source offset, keys, values and header values are read back as the same types that
+ * were written, with or without a schema.
+ * <p>
+ * Values must be null or a String, Boolean, Byte, Short, Integer, Long, Float, Double, byte[],
+ * ByteBuffer, BigDecimal, java.util.Date, List, Map or Struct. Records holding any other type are
+ * rejected with an IOException. Schemas are written by {@link SchemaSerializationModule}, which
+ * only restores default values of primitive types.
+ */
+public class JacksonSourceRecordSerializer implements SourceRecordSerializer {
+  public static final SourceRecordSerializer INSTANCE = new JacksonSourceRecordSerializer(ObjectMapperFactory.INSTANCE);
+  static final String INT8 = "int8";
+  static final String INT16 = "int16";
+  static final String INT32 = "int32";
+  static final String INT64 = "int64";
+  static final String FLOAT32 = "float32";
+  static final String FLOAT64 = "float64";
+  static final String BYTES = "bytes";
+  static final String BYTE_BUFFER = "byteBuffer";
+  static final String DECIMAL = "decimal";
+  static final String DATE = "date";
+  static final String ARRAY = "array";
+  static final String MAP = "map";
+  static final String STRUCT = "struct";
+  private final ObjectMapper objectMapper;
+
+  public JacksonSourceRecordSerializer(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public byte[] serialize(SourceRecord record) throws IOException {
+    final ObjectNode result = this.objectMapper.createObjectNode();
+    result.set("sourcePartition", write(record.sourcePartition(), null));
+    result.set("sourceOffset", write(record.sourceOffset(), null));
+    result.put("topic", record.topic());
+    if (null != record.kafkaPartition()) {
+      result.put("kafkaPartition", record.kafkaPartition());
+    }
+    write(result, "keySchema", "key", record.keySchema(), record.key());
+    write(result, "valueSchema", "value", record.valueSchema(), record.value());
+    if (null != record.timestamp()) {
+      result.put("timestamp", record.timestamp());
+    }
+    final ArrayNode headers = result.putArray("headers");
+    for (Header header : record.headers()) {
+      final ObjectNode node = headers.addObject();
+      node.put("key", header.key());
+      write(node, "schema", "value", header.schema(), header.value());
+    }
+    return this.objectMapper.writeValueAsBytes(result);
+  }
+
+  @Override
+  public SourceRecord deserialize(byte[] buffer) throws IOException {
+    final JsonNode input = this.objectMapper.readTree(buffer);
+    final Schema keySchema = schema(input.get("keySchema"));
+    final Schema valueSchema = schema(input.get("valueSchema"));
+    final ConnectHeaders headers = new ConnectHeaders();
+    for (JsonNode node : input.path("headers")) {
+      final Schema schema = schema(node.get("schema"));
+      headers.add(node.get("key").textValue(), new SchemaAndValue(schema, read(node.get("value"), schema)));
+    }
+    return new SourceRecord(
+        (Map<String, ?>) read(input.get("sourcePartition"), null),
+        (Map<String, ?>) read(input.get("sourceOffset"), null),
+        input.get("topic").textValue(),
+        input.hasNonNull("kafkaPartition") ? input.get("kafkaPartition").intValue() : null,
+        keySchema,
+        read(input.get("key"), keySchema),
+        valueSchema,
+        read(input.get("value"), valueSchema),
+        input.hasNonNull("timestamp") ? input.get("timestamp").longValue() : null,
+        headers
+    );
+  }
+
+  private void write(ObjectNode node, String schemaField, String valueField, Schema schema, Object value) throws IOException {
+    if (null != schema) {
+      node.set(schemaField, this.objectMapper.valueToTree(schema));
+    }
+    node.set(valueField, write(value, schema));
+  }
+
+  private Schema schema(JsonNode node) throws IOException {
+    return null == node || node.isNull() ? null : this.objectMapper.treeToValue(node, Schema.class);
+  }
+
+  private static Schema keySchema(Schema schema) {
+    return null == schema ? null : schema.keySchema();
+  }
+
+  private static Schema valueSchema(Schema schema) {
+    return null == schema ? null : schema.valueSchema();
+  }
+
+  /**
+   * Method writes a value with a tag naming its type.
+   *
+   * @param value value to write.
+   * @param schema schema of the value, or null if it is not known. The schema of a struct is only
+   *               written when it is not known.
+   * @return node for the value.
+   * @throws IOException if the value is of a type that cannot be written.
+   */
+  JsonNode write(Object value, Schema schema) throws IOException {
+    if (null == value) {
+      return NullNode.getInstance();
+    } else if (value instanceof String) {
+      return TextNode.valueOf((String) value);
+    } else if (value instanceof Boolean) {
+      return BooleanNode.valueOf((Boolean) value);
+    }
+
+    final ObjectNode result = this.objectMapper.createObjectNode();
+    if (value instanceof Byte) {
+      result.put(INT8, (Byte) value);
+    } else if (value instanceof Short) {
+      result.put(INT16, (Short) value);
+    } else if (value instanceof Integer) {
+      result.put(INT32, (Integer) value);
+    } else if (value instanceof Long) {
+      result.put(INT64, (Long) value);
+    } else if (value instanceof Float) {
+      result.put(FLOAT32, value.toString());
+    } else if (value instanceof Double) {
+      result.put(FLOAT64, value.toString());
+    } else if (value instanceof byte[]) {
+      result.put(BYTES, (byte[]) value);
+    } else if (value instanceof ByteBuffer) {
+      final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      result.put(BYTE_BUFFER, bytes);
+    } else if (value instanceof BigDecimal) {
+      result.put(DECIMAL, value.toString());
+    } else if (value instanceof Date) {
+      result.put(DATE, ((Date) value).getTime());
+    } else if (value instanceof List) {
+      final ArrayNode array = result.putArray(ARRAY);
+      for (Object item : (List<?>) value) {
+        array.add(write(item, valueSchema(schema)));
+      }
+    } else if (value instanceof Map) {
+      final ArrayNode entries = result.putArray(MAP);
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        entries.addArray()
+            .add(write(entry.getKey(), keySchema(schema)))
+            .add(write(entry.getValue(), valueSchema(schema)));
+      }
+    } else if (value instanceof Struct) {
+      final Struct struct = (Struct) value;
+      final ObjectNode node = result.putObject(STRUCT);
+      if (null == schema) {
+        node.set("schema", this.objectMapper.valueToTree(struct.schema()));
+      }
+      final ArrayNode values = node.putArray("values");
+      for (Field field : struct.schema().fields()) {
+        values.add(write(struct.get(field), field.schema()));
+      }
+    } else {
+      throw new IOException(
+          String.format("Values of type '%s' cannot be serialized.", value.getClass().getName())
+      );
+    }
+    return result;
+  }
+
+  /**
+   * Method reads a value written by write(Object, Schema).
+   *
+   * @param node node to read.
+   * @param schema schema of the value, or null if it is not known.
+   * @return value of the same type that was written.
+   * @throws IOException if the node was not written by write(Object, Schema).
+   */
+  Object read(JsonNode node, Schema schema) throws IOException {
+    if (null == node || node.isNull()) {
+      return null;
+    } else if (node.isTextual()) {
+      return node.textValue();
+    } else if (node.isBoolean()) {
+      return node.booleanValue();
+    } else if (!node.isObject() || node.size() != 1) {
+      throw new IOException(String.format("Could not read value from '%s'.", node));
+    }
+
+    final Map.Entry<String, JsonNode> tagged = node.fields().next();
+    final JsonNode value = tagged.getValue();
+    switch (tagged.getKey()) {
+      case INT8:
+        return (byte) value.intValue();
+      case INT16:
+        return (short) value.intValue();
+      case INT32:
+        return value.intValue();
+      case INT64:
+        return value.longValue();
+      case FLOAT32:
+        return Float.parseFloat(value.textValue());
+      case FLOAT64:
+        return Double.parseDouble(value.textValue());
+      case BYTES:
+        return value.binaryValue();
+      case BYTE_BUFFER:
+        return ByteBuffer.wrap(value.binaryValue());
+      case DECIMAL:
+        return new BigDecimal(value.textValue());
+      case DATE:
+        return new Date(value.longValue());
+      case ARRAY:
+        final List<Object> list = new ArrayList<>(value.size());
+        for (JsonNode item : value) {
+          list.add(read(item, valueSchema(schema)));
+        }
+        return list;
+      case MAP:
+        final Map<Object, Object> map = new LinkedHashMap<>(value.size());
+        for (JsonNode entry : value) {
+          map.put(read(entry.get(0), keySchema(schema)), read(entry.get(1), valueSchema(schema)));
+        }
+        return map;
+      case STRUCT:
+        final Schema structSchema = value.has("schema") ? schema(value.get("schema")) : schema;
+        final Struct struct = new Struct(structSchema);
+        final Iterator<JsonNode> values = value.get("values").iterator();
+        for (Field field : structSchema.fields()) {
+          struct.put(field, read(values.next(), field.schema()));
+        }
+        return struct;
+      default:
+        throw new IOException(String.format("Unknown type '%s'.", tagged.getKey()));
+    }
+  }
+}
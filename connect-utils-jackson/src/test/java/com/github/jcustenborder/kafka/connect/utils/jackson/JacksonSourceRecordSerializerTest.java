@@ -0,0 +1,251 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.jackson;
+
+import com.github.jcustenborder.kafka.connect.utils.data.SourceRecordDeque;
+import com.github.jcustenborder.kafka.connect.utils.data.SourceRecordDequeBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JacksonSourceRecordSerializerTest {
+  static final Map<String, ?> SOURCE_PARTITION = ImmutableMap.of("file", "/tmp/input.csv", "shard", 3);
+  static final Map<String, ?> SOURCE_OFFSET = ImmutableMap.of(
+      "line", 12,
+      "position", 1234L,
+      "ratio", 0.25D,
+      "weight", 1.5F,
+      "done", false
+  );
+  static final Schema NESTED_SCHEMA = SchemaBuilder.struct()
+      .name("com.example.Nested")
+      .field("name", Schema.STRING_SCHEMA)
+      .build();
+  static final Schema VALUE_SCHEMA = SchemaBuilder.struct()
+      .name("com.example.Value")
+      .field("int8", Schema.INT8_SCHEMA)
+      .field("int16", Schema.INT16_SCHEMA)
+      .field("int32", Schema.INT32_SCHEMA)
+      .field("int64", Schema.INT64_SCHEMA)
+      .field("float32", Schema.FLOAT32_SCHEMA)
+      .field("float64", Schema.FLOAT64_SCHEMA)
+      .field("boolean", Schema.BOOLEAN_SCHEMA)
+      .field("bytes", Schema.BYTES_SCHEMA)
+      .field("optional", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("decimal", Decimal.schema(2))
+      .field("timestamp", Timestamp.SCHEMA)
+      .field("array", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+      .field("map", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT16_SCHEMA).build())
+      .field("nested", NESTED_SCHEMA)
+      .field("nestedArray", SchemaBuilder.array(NESTED_SCHEMA).build())
+      .build();
+
+  final JacksonSourceRecordSerializer serializer = new JacksonSourceRecordSerializer(ObjectMapperFactory.INSTANCE);
+
+  SourceRecord roundTrip(SourceRecord record) throws IOException {
+    return this.serializer.deserialize(this.serializer.serialize(record));
+  }
+
+  static Struct struct() {
+    return new Struct(VALUE_SCHEMA)
+        .put("int8", (byte) 1)
+        .put("int16", (short) 2)
+        .put("int32", 3)
+        .put("int64", 4L)
+        .put("float32", 5.1F)
+        .put("float64", 6.1D)
+        .put("boolean", true)
+        .put("bytes", new byte[]{1, 2, 3})
+        .put("decimal", new BigDecimal("12.30"))
+        .put("timestamp", new Date(1500000000123L))
+        .put("array", Arrays.asList(1, 2, 3))
+        .put("map", ImmutableMap.of("a", (short) 1, "b", (short) 2))
+        .put("nested", new Struct(NESTED_SCHEMA).put("name", "first"))
+        .put("nestedArray", Arrays.asList(new Struct(NESTED_SCHEMA).put("name", "second")));
+  }
+
+  static ConnectHeaders headers() {
+    ConnectHeaders headers = new ConnectHeaders();
+    headers.addString("string", "value");
+    headers.addInt("int", 1);
+    headers.addShort("short", (short) 2);
+    headers.addDouble("double", 3.5D);
+    headers.addTimestamp("timestamp", new Date(1500000000123L));
+    headers.addDecimal("decimal", new BigDecimal("1.50"));
+    headers.addStruct("struct", new Struct(NESTED_SCHEMA).put("name", "header"));
+    headers.add("schemaless", 12L, null);
+    return headers;
+  }
+
+  @Test
+  public void schema() throws IOException {
+    final SourceRecord expected = new SourceRecord(
+        SOURCE_PARTITION,
+        SOURCE_OFFSET,
+        "topic",
+        1,
+        Schema.STRING_SCHEMA,
+        "key",
+        VALUE_SCHEMA,
+        struct(),
+        1500000000000L
+    );
+    assertEquals(expected, roundTrip(expected));
+  }
+
+  @Test
+  public void schemaWithHeaders() throws IOException {
+    final SourceRecord expected = new SourceRecord(
+        SOURCE_PARTITION,
+        SOURCE_OFFSET,
+        "topic",
+        null,
+        Schema.STRING_SCHEMA,
+        "key",
+        VALUE_SCHEMA,
+        struct(),
+        null,
+        headers()
+    );
+    assertEquals(expected, roundTrip(expected));
+  }
+
+  @Test
+  public void schemaless() throws IOException {
+    final Map<Object, Object> value = ImmutableMap.<Object, Object>builder()
+        .put("int8", (byte) 1)
+        .put("int16", (short) 2)
+        .put("int32", 3)
+        .put("int64", 4L)
+        .put("float32", 5.1F)
+        .put("float64", 6.1D)
+        .put("decimal", new BigDecimal("1E+3"))
+        .put("date", new Date(1500000000123L))
+        .put("list", Arrays.asList(1, 2L, "three", null))
+        .put(4, ImmutableMap.of(5L, 6.5F))
+        .put("struct", new Struct(NESTED_SCHEMA).put("name", "schemaless"))
+        .build();
+    final SourceRecord expected = new SourceRecord(
+        SOURCE_PARTITION,
+        SOURCE_OFFSET,
+        "topic",
+        null,
+        null,
+        12,
+        null,
+        value,
+        null,
+        headers()
+    );
+    final SourceRecord actual = roundTrip(expected);
+    assertEquals(expected, actual);
+    assertEquals(Integer.class, actual.key().getClass());
+    assertEquals(Integer.class, actual.sourceOffset().get("line").getClass());
+    assertEquals(Float.class, actual.sourceOffset().get("weight").getClass());
+    assertEquals(Double.class, actual.sourceOffset().get("ratio").getClass());
+  }
+
+  @Test
+  public void schemalessWithoutHeaders() throws IOException {
+    final SourceRecord expected = new SourceRecord(null, null, "topic", null, null);
+    final SourceRecord actual = roundTrip(expected);
+    assertEquals(expected, actual);
+    assertNull(actual.sourcePartition());
+    assertNull(actual.value());
+  }
+
+  @Test
+  public void bytes() throws IOException {
+    final SourceRecord expected = new SourceRecord(
+        SOURCE_PARTITION,
+        SOURCE_OFFSET,
+        "topic",
+        null,
+        ByteBuffer.wrap(new byte[]{4, 5, 6}),
+        null,
+        new byte[]{1, 2, 3}
+    );
+    final SourceRecord actual = roundTrip(expected);
+    assertEquals(expected.key(), actual.key());
+    assertArrayEquals((byte[]) expected.value(), (byte[]) actual.value());
+  }
+
+  @Test
+  public void unsupportedType() {
+    final SourceRecord record = new SourceRecord(
+        SOURCE_PARTITION,
+        SOURCE_OFFSET,
+        "topic",
+        null,
+        new Object()
+    );
+    assertThrows(IOException.class, () -> this.serializer.serialize(record));
+  }
+
+  @Test
+  public void spill(@TempDir File spillDirectory) throws Exception {
+    final List<SourceRecord> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      expected.add(
+          new SourceRecord(
+              ImmutableMap.of("file", "input.csv"),
+              ImmutableMap.of("line", i),
+              "topic",
+              null,
+              null,
+              i,
+              null,
+              ImmutableMap.of("value", i * 1.5D),
+              null,
+              headers()
+          )
+      );
+    }
+    try (SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .spillDirectory(spillDirectory)
+        .spillThreshold(2)
+        .spillSerializer(JacksonSourceRecordSerializer.INSTANCE)
+        .batchSize(100)
+        .build()) {
+      for (SourceRecord record : expected) {
+        deque.add(record);
+      }
+      assertEquals(expected, deque.getBatch());
+    }
+  }
+}
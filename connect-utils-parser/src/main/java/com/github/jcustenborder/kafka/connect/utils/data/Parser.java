@@ -15,7 +15,12 @@
  */
 package com.github.jcustenborder.kafka.connect.utils.data;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.github.jcustenborder.kafka.connect.utils.jackson.ObjectMapperFactory;
 import com.github.jcustenborder.kafka.connect.utils.data.type.BooleanParser;
 import com.github.jcustenborder.kafka.connect.utils.data.type.DateTypeParser;
 import com.github.jcustenborder.kafka.connect.utils.data.type.DecimalTypeParser;
@@ -31,6 +36,8 @@ import com.github.jcustenborder.kafka.connect.utils.data.type.TimestampTypeParse
 import com.github.jcustenborder.kafka.connect.utils.data.type.TypeParser;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import org.apache.kafka.connect.data.Date;
@@ -44,9 +51,10 @@ import org.apache.kafka.connect.errors.DataException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,9 +62,23 @@ import java.util.Set;
 
 public class Parser {
   private static final Logger log = LoggerFactory.getLogger(Parser.class);
+  static final int MAXIMUM_DECODERS = 256;
   final Map<ParserKey, TypeParser> typeParsers;
+  final boolean deepFieldSearch;
 
   public Parser() {
+    this(false);
+  }
+
+  /**
+   * @param deepFieldSearch true to look for struct fields anywhere below the object with
+   *                        JsonNode.findValue() instead of only in the object itself. This is how
+   *                        fields were found in earlier versions. It searches the whole subtree
+   *                        when a field is missing and can match a field with the same name in a
+   *                        nested object.
+   */
+  public Parser(boolean deepFieldSearch) {
+    this.deepFieldSearch = deepFieldSearch;
     this.typeParsers = new HashMap<>();
     registerTypeParser(Schema.BOOLEAN_SCHEMA, new BooleanParser());
     registerTypeParser(Schema.BOOLEAN_SCHEMA, new BooleanParser());
@@ -84,6 +106,8 @@ public class Parser {
     Preconditions.checkNotNull(schema, "schema cannot be null.");
     Preconditions.checkNotNull(typeParser, "typeParser cannot be null.");
     this.typeParsers.put(new ParserKey(schema), typeParser);
+    this.decoders.invalidateAll();
+    this.tokenDecoders.invalidateAll();
   }
 
   /**
@@ -132,58 +156,125 @@ public class Parser {
     return parser;
   }
 
-  public Object parseJsonNode(Schema schema, JsonNode input) {
-    checkSchemaAndInput(schema, input);
+  /**
+   * Decoder for a JsonNode compiled from a schema. The TypeParser for every leaf is resolved when
+   * the schema is compiled.
+   */
+  interface NodeDecoder {
+    Object decode(JsonNode input);
+  }
 
-    if (null == input || input.isNull()) {
-      return null;
+  static final class FieldDecoder {
+    final Field field;
+    final String fieldName;
+    final NodeDecoder decoder;
+
+    FieldDecoder(Field field, NodeDecoder decoder) {
+      this.field = field;
+      this.fieldName = field.name();
+      this.decoder = decoder;
     }
+  }
 
-    log.trace("parseJsonNode() - schema.type() = {}", schema.type());
+  /**
+   * Compiled decoders keyed by the identity of the schema. weakKeys() is used for the identity
+   * comparison, which avoids the deep Schema.equals(). Each decoder holds on to its schema, so
+   * entries are only evicted once the cache holds MAXIMUM_DECODERS schemas. The cache is cleared
+   * when a TypeParser is registered.
+   */
+  private final Cache<Schema, NodeDecoder> decoders = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_DECODERS)
+      .build();
 
-    Object result;
+  NodeDecoder decoder(Schema schema) {
+    NodeDecoder result = this.decoders.getIfPresent(schema);
+    if (null == result) {
+      result = compile(schema);
+      this.decoders.put(schema, result);
+    }
+    return result;
+  }
 
-    if (Schema.Type.STRUCT == schema.type()) {
-      Struct struct = new Struct(schema);
+  NodeDecoder compile(Schema schema) {
+    log.trace("compile() - Compiling decoder for {}({})", schema.type(), schema.name());
+    final NodeDecoder decoder;
+    switch (schema.type()) {
+      case STRUCT:
+        decoder = structDecoder(schema);
+        break;
+      case ARRAY:
+        decoder = arrayDecoder(schema);
+        break;
+      case MAP:
+        decoder = mapDecoder(schema);
+        break;
+      default:
+        decoder = valueDecoder(schema);
+        break;
+    }
+    final boolean optional = schema.isOptional();
+    return input -> {
+      if (!optional) {
+        Preconditions.checkNotNull(input, "schema is not optional so input cannot be null.");
+      }
+      if (null == input || input.isNull()) {
+        return null;
+      }
+      return decoder.decode(input);
+    };
+  }
+
+  private NodeDecoder structDecoder(Schema schema) {
+    final List<Field> fields = schema.fields();
+    final FieldDecoder[] fieldDecoders = new FieldDecoder[fields.size()];
+    for (int i = 0; i < fieldDecoders.length; i++) {
+      final Field field = fields.get(i);
+      fieldDecoders[i] = new FieldDecoder(field, compile(field.schema()));
+    }
+    final boolean deepFieldSearch = this.deepFieldSearch;
+    return input -> {
       Preconditions.checkState(input.isObject(), "struct schemas require a ObjectNode to be supplied for input.");
-      log.trace("parseJsonNode() - Processing as struct.");
-      final Set<String> processedFields = Sets.newHashSetWithExpectedSize(schema.fields().size());
-      for (Field field : schema.fields()) {
-        log.trace("parseJsonNode() - Processing field '{}:{}'", schema.name(), field.name());
-        JsonNode fieldInput = input.findValue(field.name());
+      final Struct struct = new Struct(schema);
+      for (FieldDecoder fieldDecoder : fieldDecoders) {
+        final JsonNode fieldInput = deepFieldSearch ?
+            input.findValue(fieldDecoder.fieldName) :
+            input.get(fieldDecoder.fieldName);
         try {
-          Object convertedValue = parseJsonNode(field.schema(), fieldInput);
-          struct.put(field, convertedValue);
+          struct.put(fieldDecoder.field, fieldDecoder.decoder.decode(fieldInput));
         } catch (Exception ex) {
           throw new DataException(
-              String.format("Exception thrown while processing %s:%s", schema.name(), field.name()),
+              String.format("Exception thrown while processing %s:%s", schema.name(), fieldDecoder.fieldName),
               ex
           );
         }
-        processedFields.add(field.name());
       }
-
       if (log.isTraceEnabled()) {
-        final Set<String> jsonFieldNames = Sets.newLinkedHashSet(ImmutableList.copyOf(input.fieldNames()));
-        Sets.SetView<String> difference = Sets.difference(jsonFieldNames, processedFields);
-        if (!difference.isEmpty()) {
-          log.trace("parseJsonNode() - Unprocessed fields for {}:\n{}", schema.name(), Joiner.on('\n').join(difference));
-        }
+        logUnprocessedFields(schema, input);
       }
+      return struct;
+    };
+  }
+
+  private static void logUnprocessedFields(Schema schema, JsonNode input) {
+    final Set<String> jsonFieldNames = Sets.newLinkedHashSet(ImmutableList.copyOf(input.fieldNames()));
+    for (Field field : schema.fields()) {
+      jsonFieldNames.remove(field.name());
+    }
+    if (!jsonFieldNames.isEmpty()) {
+      log.trace("parseJsonNode() - Unprocessed fields for {}:\n{}", schema.name(), Joiner.on('\n').join(jsonFieldNames));
+    }
+  }
 
-      result = struct;
-    } else if (Schema.Type.ARRAY == schema.type()) {
+  private NodeDecoder arrayDecoder(Schema schema) {
+    final NodeDecoder valueDecoder = compile(schema.valueSchema());
+    return input -> {
       Preconditions.checkState(input.isArray(), "array schemas require a ArrayNode to be supplied for input.");
-      log.trace("parseJsonNode() - Processing as array.");
-      List<Object> array = new ArrayList<>();
-      Iterator<JsonNode> arrayIterator = input.iterator();
+      final List<Object> array = new ArrayList<>(input.size());
       int index = 0;
-      while (arrayIterator.hasNext()) {
-        log.trace("parseJsonNode() - Processing index {}", index);
-        JsonNode arrayInput = arrayIterator.next();
+      for (JsonNode arrayInput : input) {
         try {
-          Object arrayResult = parseJsonNode(schema.valueSchema(), arrayInput);
-          array.add(arrayResult);
+          array.add(valueDecoder.decode(arrayInput));
         } catch (Exception ex) {
           throw new DataException(
               String.format("Exception thrown while processing index %s", index),
@@ -192,30 +283,31 @@ public class Parser {
         }
         index++;
       }
-      result = array;
-    } else if (Schema.Type.MAP == schema.type()) {
+      return array;
+    };
+  }
+
+  private NodeDecoder mapDecoder(Schema schema) {
+    final Schema keySchema = schema.keySchema();
+    final NodeDecoder valueDecoder = compile(schema.valueSchema());
+    return input -> {
       Preconditions.checkState(input.isObject(), "map schemas require a ObjectNode to be supplied for input.");
-      log.trace("parseJsonNode() - Processing as map.");
-      Map<Object, Object> map = new LinkedHashMap<>();
-      Iterator<String> fieldNameIterator = input.fieldNames();
-
-      while (fieldNameIterator.hasNext()) {
-        final String fieldName = fieldNameIterator.next();
-        final JsonNode fieldInput = input.findValue(fieldName);
-        log.trace("parseJsonNode() - Processing key. Key='{}'", fieldName);
+      final Map<Object, Object> map = new LinkedHashMap<>();
+      for (Map.Entry<String, JsonNode> entry : input.properties()) {
+        final String fieldName = entry.getKey();
+        final JsonNode fieldInput = entry.getValue();
         final Object mapKey;
         try {
-          mapKey = parseString(schema.keySchema(), fieldName);
+          mapKey = parseString(keySchema, fieldName);
         } catch (Exception ex) {
           throw new DataException(
               String.format("Exception thrown while parsing key. Key='%s'", fieldName),
               ex
           );
         }
-        log.trace("parseJsonNode() - Processing value. Key='{}'", fieldName);
         final Object mapValue;
         try {
-          mapValue = parseJsonNode(schema.keySchema(), fieldInput);
+          mapValue = valueDecoder.decode(fieldInput);
         } catch (Exception ex) {
           throw new DataException(
               String.format("Exception thrown while parsing value. Key='%s'", fieldName),
@@ -224,20 +316,341 @@ public class Parser {
         }
         map.put(mapKey, mapValue);
       }
+      return map;
+    };
+  }
 
-      result = map;
-    } else {
-      TypeParser parser = findParser(schema);
-
+  private NodeDecoder valueDecoder(Schema schema) {
+    final TypeParser parser = this.typeParsers.get(new ParserKey(schema));
+    if (null == parser) {
+      return input -> findParser(schema).parseJsonNode(input, schema);
+    }
+    return input -> {
       try {
-        result = parser.parseJsonNode(input, schema);
+        return parser.parseJsonNode(input, schema);
       } catch (Exception ex) {
         String message = String.format("Could not parse '%s' to %s", input, parser.expectedClass().getSimpleName());
         throw new DataException(message, ex);
       }
+    };
+  }
+
+  /**
+   * Method is used to parse a JsonNode to the proper Java types. The schema is compiled into a
+   * decoder the first time it is seen, and the decoder is reused for later calls with the same
+   * schema instance.
+   *
+   * @param schema Input schema to parse the JsonNode by.
+   * @param input  JsonNode to parse.
+   * @return Java type for the schema.
+   */
+  public Object parseJsonNode(Schema schema, JsonNode input) {
+    Preconditions.checkNotNull(schema, "schema cannot be null");
+    return decoder(schema).decode(input);
+  }
+
+  /**
+   * Decoder for the tokens of a JsonParser compiled from a schema. The parser is positioned on the
+   * first token of the value when decode is called and is left on the last token of the value.
+   */
+  interface TokenDecoder {
+    Object decode(JsonParser parser) throws IOException;
+  }
+
+  static final class FieldTokenDecoder {
+    final Field field;
+    final int index;
+    final boolean optional;
+    final TokenDecoder decoder;
+
+    FieldTokenDecoder(Field field, TokenDecoder decoder) {
+      this.field = field;
+      this.index = field.index();
+      this.optional = field.schema().isOptional();
+      this.decoder = decoder;
     }
+  }
 
+  /**
+   * Compiled token decoders keyed by the identity of the schema. These are cached and evicted the
+   * same way as the decoders for parseJsonNode.
+   */
+  private final Cache<Schema, TokenDecoder> tokenDecoders = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_DECODERS)
+      .build();
+
+  TokenDecoder tokenDecoder(Schema schema) {
+    TokenDecoder result = this.tokenDecoders.getIfPresent(schema);
+    if (null == result) {
+      result = compileTokens(schema);
+      this.tokenDecoders.put(schema, result);
+    }
     return result;
   }
 
+  TokenDecoder compileTokens(Schema schema) {
+    log.trace("compileTokens() - Compiling decoder for {}({})", schema.type(), schema.name());
+    final TokenDecoder decoder;
+    switch (schema.type()) {
+      case STRUCT:
+        decoder = structTokenDecoder(schema);
+        break;
+      case ARRAY:
+        decoder = arrayTokenDecoder(schema);
+        break;
+      case MAP:
+        decoder = mapTokenDecoder(schema);
+        break;
+      default:
+        decoder = valueTokenDecoder(schema);
+        break;
+    }
+    final boolean optional = schema.isOptional();
+    return parser -> {
+      final JsonToken token = parser.currentToken();
+      if (null == token || JsonToken.VALUE_NULL == token) {
+        if (!optional) {
+          throw new NullPointerException("schema is not optional so input cannot be null.");
+        }
+        return null;
+      }
+      return decoder.decode(parser);
+    };
+  }
+
+  private TokenDecoder structTokenDecoder(Schema schema) {
+    final List<Field> fields = schema.fields();
+    final FieldTokenDecoder[] fieldDecoders = new FieldTokenDecoder[fields.size()];
+    final Map<String, FieldTokenDecoder> fieldDecodersByName = new HashMap<>();
+    for (int i = 0; i < fieldDecoders.length; i++) {
+      final Field field = fields.get(i);
+      fieldDecoders[i] = new FieldTokenDecoder(field, compileTokens(field.schema()));
+      fieldDecodersByName.put(field.name(), fieldDecoders[i]);
+    }
+    return parser -> {
+      Preconditions.checkState(
+          JsonToken.START_OBJECT == parser.currentToken(),
+          "struct schemas require a ObjectNode to be supplied for input."
+      );
+      final Object[] values = new Object[fieldDecoders.length];
+      final boolean[] present = new boolean[fieldDecoders.length];
+      String fieldName;
+      while (null != (fieldName = parser.nextFieldName())) {
+        parser.nextToken();
+        final FieldTokenDecoder fieldDecoder = fieldDecodersByName.get(fieldName);
+        if (null == fieldDecoder) {
+          log.trace("parseJson() - Skipping unprocessed field {} for {}", fieldName, schema.name());
+          parser.skipChildren();
+          continue;
+        }
+        try {
+          values[fieldDecoder.index] = fieldDecoder.decoder.decode(parser);
+        } catch (Exception ex) {
+          throw new DataException(
+              String.format("Exception thrown while processing %s:%s", schema.name(), fieldName),
+              ex
+          );
+        }
+        present[fieldDecoder.index] = true;
+      }
+      final Struct struct = new Struct(schema);
+      for (FieldTokenDecoder fieldDecoder : fieldDecoders) {
+        try {
+          if (!present[fieldDecoder.index] && !fieldDecoder.optional) {
+            throw new NullPointerException("schema is not optional so input cannot be null.");
+          }
+          struct.put(fieldDecoder.field, values[fieldDecoder.index]);
+        } catch (Exception ex) {
+          throw new DataException(
+              String.format("Exception thrown while processing %s:%s", schema.name(), fieldDecoder.field.name()),
+              ex
+          );
+        }
+      }
+      return struct;
+    };
+  }
+
+  private TokenDecoder arrayTokenDecoder(Schema schema) {
+    final TokenDecoder valueDecoder = compileTokens(schema.valueSchema());
+    return parser -> {
+      Preconditions.checkState(
+          JsonToken.START_ARRAY == parser.currentToken(),
+          "array schemas require a ArrayNode to be supplied for input."
+      );
+      final List<Object> array = new ArrayList<>();
+      int index = 0;
+      while (JsonToken.END_ARRAY != parser.nextToken()) {
+        try {
+          array.add(valueDecoder.decode(parser));
+        } catch (Exception ex) {
+          throw new DataException(
+              String.format("Exception thrown while processing index %s", index),
+              ex
+          );
+        }
+        index++;
+      }
+      return array;
+    };
+  }
+
+  private TokenDecoder mapTokenDecoder(Schema schema) {
+    final Schema keySchema = schema.keySchema();
+    final TokenDecoder valueDecoder = compileTokens(schema.valueSchema());
+    return parser -> {
+      Preconditions.checkState(
+          JsonToken.START_OBJECT == parser.currentToken(),
+          "map schemas require a ObjectNode to be supplied for input."
+      );
+      final Map<Object, Object> map = new LinkedHashMap<>();
+      String fieldName;
+      while (null != (fieldName = parser.nextFieldName())) {
+        parser.nextToken();
+        final Object mapKey;
+        try {
+          mapKey = parseString(keySchema, fieldName);
+        } catch (Exception ex) {
+          throw new DataException(
+              String.format("Exception thrown while parsing key. Key='%s'", fieldName),
+              ex
+          );
+        }
+        final Object mapValue;
+        try {
+          mapValue = valueDecoder.decode(parser);
+        } catch (Exception ex) {
+          throw new DataException(
+              String.format("Exception thrown while parsing value. Key='%s'", fieldName),
+              ex
+          );
+        }
+        map.put(mapKey, mapValue);
+      }
+      return map;
+    };
+  }
+
+  /**
+   * Leaf values are handed to the TypeParser as a single JsonNode so a TypeParser sees the same
+   * input that parseJsonNode would give it. Strings, longs and booleans are read straight from the
+   * token when the stock TypeParser for them is registered, since it would return the token value
+   * unchanged.
+   */
+  private TokenDecoder valueTokenDecoder(Schema schema) {
+    final NodeDecoder decoder = valueDecoder(schema);
+    final TypeParser typeParser = this.typeParsers.get(new ParserKey(schema));
+    final Class<?> typeParserClass = null != typeParser ? typeParser.getClass() : null;
+    if (StringTypeParser.class == typeParserClass) {
+      return parser -> JsonToken.VALUE_STRING == parser.currentToken() ?
+          parser.getText() :
+          decoder.decode(valueNode(parser));
+    } else if (Int64TypeParser.class == typeParserClass) {
+      return parser -> JsonToken.VALUE_NUMBER_INT == parser.currentToken() &&
+          JsonParser.NumberType.BIG_INTEGER != parser.getNumberType() ?
+          (Object) parser.getLongValue() :
+          decoder.decode(valueNode(parser));
+    } else if (BooleanParser.class == typeParserClass) {
+      return parser -> parser.currentToken().isBoolean() ?
+          (Object) (JsonToken.VALUE_TRUE == parser.currentToken()) :
+          decoder.decode(valueNode(parser));
+    }
+    return parser -> decoder.decode(valueNode(parser));
+  }
+
+  /**
+   * Method creates the JsonNode for the value the parser is positioned on. Numbers are read the way
+   * ObjectMapperFactory.INSTANCE reads them, as longs and BigDecimals.
+   */
+  static JsonNode valueNode(JsonParser parser) throws IOException {
+    final JsonNodeFactory nodeFactory = ObjectMapperFactory.INSTANCE.getNodeFactory();
+    switch (parser.currentToken()) {
+      case VALUE_STRING:
+        return nodeFactory.textNode(parser.getText());
+      case VALUE_NUMBER_INT:
+        if (JsonParser.NumberType.BIG_INTEGER == parser.getNumberType()) {
+          return nodeFactory.numberNode(parser.getBigIntegerValue());
+        }
+        return nodeFactory.numberNode(parser.getLongValue());
+      case VALUE_NUMBER_FLOAT:
+        return nodeFactory.numberNode(parser.getDecimalValue());
+      case VALUE_TRUE:
+        return nodeFactory.booleanNode(true);
+      case VALUE_FALSE:
+        return nodeFactory.booleanNode(false);
+      default:
+        return ObjectMapperFactory.INSTANCE.readTree(parser);
+    }
+  }
+
+  /**
+   * Method is used to parse the value a JsonParser is positioned on without reading it into a
+   * JsonNode first. Structs, arrays and maps are built directly from the tokens and fields that are
+   * not in the schema are skipped. The parser is advanced to the first token if it has not been
+   * started and is left on the last token of the value, so a stream of values can be read with the
+   * same parser.
+   * <p>
+   * A Parser created with deepFieldSearch reads the value into a JsonNode and calls parseJsonNode
+   * since a deep search needs the whole object.
+   *
+   * @param schema Input schema to parse the JSON by.
+   * @param parser JsonParser to read the value from.
+   * @return Java type for the schema.
+   * @throws DataException Exception is thrown if the JSON cannot be read or parsed to the schema.
+   */
+  public Object parseJson(Schema schema, JsonParser parser) {
+    Preconditions.checkNotNull(schema, "schema cannot be null");
+    Preconditions.checkNotNull(parser, "parser cannot be null");
+    try {
+      if (!parser.hasCurrentToken()) {
+        parser.nextToken();
+      }
+      if (this.deepFieldSearch) {
+        final JsonNode input = parser.hasCurrentToken() ? ObjectMapperFactory.INSTANCE.readTree(parser) : null;
+        return parseJsonNode(schema, input);
+      }
+      return tokenDecoder(schema).decode(parser);
+    } catch (IOException ex) {
+      throw new DataException("Exception thrown while reading JSON", ex);
+    }
+  }
+
+  /**
+   * Method is used to parse a JSON document to the proper Java types.
+   *
+   * @param schema Input schema to parse the JSON by.
+   * @param input  UTF-8 encoded JSON document.
+   * @return Java type for the schema.
+   * @see #parseJson(Schema, JsonParser)
+   */
+  public Object parseJson(Schema schema, byte[] input) {
+    Preconditions.checkNotNull(input, "input cannot be null");
+    try (JsonParser parser = ObjectMapperFactory.INSTANCE.createParser(input)) {
+      return parseJson(schema, parser);
+    } catch (IOException ex) {
+      throw new DataException("Exception thrown while reading JSON", ex);
+    }
+  }
+
+  /**
+   * Method is used to parse a JSON document to the proper Java types. The remaining bytes of input
+   * are read and the position of input is not changed.
+   *
+   * @param schema Input schema to parse the JSON by.
+   * @param input  UTF-8 encoded JSON document.
+   * @return Java type for the schema.
+   * @see #parseJson(Schema, JsonParser)
+   */
+  public Object parseJson(Schema schema, ByteBuffer input) {
+    Preconditions.checkNotNull(input, "input cannot be null");
+    try (JsonParser parser = input.hasArray() ?
+        ObjectMapperFactory.INSTANCE.createParser(input.array(), input.arrayOffset() + input.position(), input.remaining()) :
+        ObjectMapperFactory.INSTANCE.createParser(new ByteBufferBackedInputStream(input.duplicate()))) {
+      return parseJson(schema, parser);
+    } catch (IOException ex) {
+      throw new DataException("Exception thrown while reading JSON", ex);
+    }
+  }
+
 }
@@ -21,37 +21,76 @@ import org.apache.kafka.connect.data.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TimeZone;
 
+/**
+ * Base class for the date parsers. The SimpleDateFormats passed in are compiled into parsers that
+ * do not need the SimpleDateFormat where the pattern allows it, so a parser can be shared between
+ * threads. A format only matches when it reads the whole input, apart from trailing whitespace.
+ * The formats are tried in the order they were passed in, without throwing an exception for the
+ * formats that do not match. The format that matched last is tried first when no earlier format
+ * can match the same input, so the result never depends on the order of the inputs.
+ */
 public abstract class BaseDateTypeParser implements TypeParser {
   final static Logger log = LoggerFactory.getLogger(BaseDateTypeParser.class);
   protected final TimeZone timeZone;
   final SimpleDateFormat[] dateFormats;
+  final DateFormatCandidate[] candidates;
+  /**
+   * True for the candidates that no earlier candidate can match the same input as.
+   */
+  final boolean[] unambiguous;
+  private volatile int lastMatched = -1;
 
   public BaseDateTypeParser(TimeZone timeZone, SimpleDateFormat... dateFormats) {
     this.dateFormats = dateFormats;
     this.timeZone = timeZone;
+    this.candidates = new DateFormatCandidate[dateFormats.length];
+    this.unambiguous = new boolean[dateFormats.length];
+    final Set<String> signatures = new HashSet<>();
+    boolean anySignature = false;
+    for (int i = 0; i < dateFormats.length; i++) {
+      this.candidates[i] = DateFormatCandidate.of(dateFormats[i]);
+      final String signature = this.candidates[i].signature();
+      this.unambiguous[i] = !anySignature && null != signature && !signatures.contains(signature);
+      if (null == signature) {
+        anySignature = true;
+      } else {
+        signatures.add(signature);
+      }
+    }
   }
 
   abstract Date process(Date date);
 
-  @Override
-  public Object parseString(String s, final Schema schema) {
-    Date date = null;
-    for (SimpleDateFormat dateFormat : this.dateFormats) {
-      try {
-        date = dateFormat.parse(s);
-        break;
-      } catch (ParseException e) {
-        if (log.isTraceEnabled()) {
-          log.trace("Could not parse '{}' to java.util.Date", s, e);
+  Date parseDate(String s) {
+    final int last = this.lastMatched;
+    if (last >= 0 && this.unambiguous[last]) {
+      final Date date = this.candidates[last].parseCompiled(s);
+      if (null != date) {
+        return date;
+      }
+    }
+    for (int i = 0; i < this.candidates.length; i++) {
+      final Date date = this.candidates[i].parse(s);
+      if (null != date) {
+        if (i != last) {
+          this.lastMatched = i;
         }
+        return date;
       }
+      log.trace("parseDate() - Could not parse '{}' with '{}'", s, this.candidates[i]);
     }
+    return null;
+  }
 
+  @Override
+  public Object parseString(String s, final Schema schema) {
+    final Date date = parseDate(s);
     Preconditions.checkState(null != date, "Could not parse '%s' to java.util.Date", s);
     return process(date);
   }
@@ -0,0 +1,602 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data.type;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * One of the formats a BaseDateTypeParser tries. parse() returns null instead of throwing when the
+ * input does not match. A format only matches when it reads the whole input, apart from trailing
+ * whitespace.
+ * <p>
+ * Patterns made up of the numeric fields y (except y and yy), M, MM, d, H, h, m, s and S, the
+ * am/pm marker a and literal text are compiled into a list of fields that is read without a
+ * SimpleDateFormat. Fields are read the way a lenient SimpleDateFormat reads them: spaces and tabs
+ * in front of a field are skipped, a field followed by another numeric field is limited to the
+ * number of pattern letters, values out of range roll over into the next field and the time zone
+ * of the SimpleDateFormat is used. Local times that occur twice at a daylight saving transition
+ * resolve to the later offset like GregorianCalendar does. Dates outside of the years 1583 to 9999,
+ * and dates where java.time and TimeZone disagree on the offset, are resolved with a copy of the
+ * calendar of the SimpleDateFormat.
+ * <p>
+ * Any other pattern is parsed with the SimpleDateFormat, which is locked during the call. So is
+ * input that spells a number in a way only DecimalFormat reads, such as NaN, infinity or an
+ * exponent.
+ */
+abstract class DateFormatCandidate {
+  private static final Logger log = LoggerFactory.getLogger(DateFormatCandidate.class);
+  private static final int GREGORIAN_CUTOVER_YEAR = 1583;
+  private static final int MAXIMUM_YEAR = 9999;
+  private static final long MINIMUM_LOCAL_MILLIS = LocalDate.of(GREGORIAN_CUTOVER_YEAR, 1, 1).toEpochDay() * 86400000L;
+  private static final long MAXIMUM_LOCAL_MILLIS = LocalDate.of(MAXIMUM_YEAR + 1, 1, 1).toEpochDay() * 86400000L;
+  private static final int MAXIMUM_LONG_DIGITS = 18;
+
+  final String pattern;
+
+  DateFormatCandidate(String pattern) {
+    this.pattern = pattern;
+  }
+
+  /**
+   * Method parses the input.
+   *
+   * @param input input to parse.
+   * @return date or null if the input does not match the format.
+   */
+  abstract Date parse(String input);
+
+  /**
+   * Method parses the input without calling the SimpleDateFormat.
+   *
+   * @param input input to parse.
+   * @return date or null if the input does not match or has to be parsed with the SimpleDateFormat.
+   */
+  Date parseCompiled(String input) {
+    return null;
+  }
+
+  /**
+   * Literal characters of the pattern other than digits, '-' and whitespace. Input read by
+   * parseCompiled() has the same signature as the pattern once its digits, '-' and whitespace are
+   * removed, so two compiled formats with different signatures never both match the same input.
+   *
+   * @return signature or null if the format can match input with any signature.
+   */
+  String signature() {
+    return null;
+  }
+
+  static DateFormatCandidate of(SimpleDateFormat format) {
+    final LegacyCandidate legacy = new LegacyCandidate(format);
+    final Field[] fields = compile(format);
+    if (null == fields) {
+      log.debug("of() - Pattern '{}' will be parsed with SimpleDateFormat.", format.toPattern());
+      return legacy;
+    }
+    return new CompiledCandidate(format, fields, legacy);
+  }
+
+  static boolean remainderIsWhitespace(String input, int position) {
+    for (int i = position; i < input.length(); i++) {
+      if (!Character.isWhitespace(input.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static class LegacyCandidate extends DateFormatCandidate {
+    final SimpleDateFormat format;
+
+    LegacyCandidate(SimpleDateFormat format) {
+      super(format.toPattern());
+      this.format = format;
+    }
+
+    @Override
+    Date parse(String input) {
+      final ParsePosition position = new ParsePosition(0);
+      final Date result;
+      synchronized (this.format) {
+        result = this.format.parse(input, position);
+      }
+      return null != result && remainderIsWhitespace(input, position.getIndex()) ? result : null;
+    }
+  }
+
+  static class CompiledCandidate extends DateFormatCandidate {
+    /**
+     * Returned by read() when the input has to be parsed with the SimpleDateFormat.
+     */
+    static final Date DEFER = new Date(Long.MIN_VALUE);
+
+    final Field[] fields;
+    final LegacyCandidate legacy;
+    final Calendar calendar;
+    final TimeZone timeZone;
+    final ZoneId zoneId;
+    final ZoneOffset fixedOffset;
+    final String[] amPmStrings;
+    final String nan;
+    final String infinity;
+    final String exponent;
+    final boolean hourOfDay;
+    final String signature;
+
+    CompiledCandidate(SimpleDateFormat format, Field[] fields, LegacyCandidate legacy) {
+      super(format.toPattern());
+      this.fields = fields;
+      this.legacy = legacy;
+      this.calendar = (Calendar) format.getCalendar().clone();
+      this.timeZone = (TimeZone) format.getTimeZone().clone();
+      this.zoneId = this.timeZone.toZoneId();
+      final ZoneRules rules = this.zoneId.getRules();
+      this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+      this.amPmStrings = format.getDateFormatSymbols().getAmPmStrings();
+      final DecimalFormatSymbols symbols = ((DecimalFormat) format.getNumberFormat()).getDecimalFormatSymbols();
+      this.nan = symbols.getNaN();
+      this.infinity = symbols.getInfinity();
+      this.exponent = symbols.getExponentSeparator();
+
+      boolean hourOfDay = false;
+      // Text fields, and literals a number could be read from, match input with other signatures.
+      boolean anySignature = false;
+      final StringBuilder signature = new StringBuilder();
+      for (Field field : fields) {
+        hourOfDay |= Field.HOUR_OF_DAY == field.kind;
+        anySignature |= Field.AM_PM == field.kind;
+        if (null != field.literal) {
+          for (int i = 0; i < field.literal.length(); i++) {
+            final char c = field.literal.charAt(i);
+            if (Character.digit(c, 10) >= 0 ||
+                this.nan.indexOf(c) >= 0 ||
+                this.infinity.indexOf(c) >= 0 ||
+                this.exponent.indexOf(c) >= 0) {
+              anySignature = true;
+            } else if ('-' != c && !Character.isWhitespace(c)) {
+              signature.append(c);
+            }
+          }
+        }
+      }
+      this.hourOfDay = hourOfDay;
+      this.signature = anySignature ? null : signature.toString();
+    }
+
+    @Override
+    String signature() {
+      return this.signature;
+    }
+
+    @Override
+    Date parse(String input) {
+      final Date result = read(input);
+      return DEFER == result ? this.legacy.parse(input) : result;
+    }
+
+    @Override
+    Date parseCompiled(String input) {
+      final Date result = read(input);
+      return DEFER == result ? null : result;
+    }
+
+    /**
+     * Method reads the fields the same way SimpleDateFormat.parse() does.
+     *
+     * @return date, null if the input does not match or DEFER.
+     */
+    Date read(String input) {
+      final int length = input.length();
+      final int[] values = {1970, 0, 1, 0, 0, 0, 0, 0, 0};
+      int position = 0;
+      for (final Field field : this.fields) {
+        if (null != field.literal) {
+          if (!input.startsWith(field.literal, position)) {
+            return null;
+          }
+          position += field.literal.length();
+          continue;
+        }
+
+        final int start = position;
+        while (position < length && (' ' == input.charAt(position) || '\t' == input.charAt(position))) {
+          position++;
+        }
+        if (position >= length) {
+          return null;
+        }
+
+        if (Field.AM_PM == field.kind) {
+          int match = -1;
+          int matchLength = 0;
+          for (int i = 0; i < this.amPmStrings.length; i++) {
+            final String amPm = this.amPmStrings[i];
+            if (amPm.length() > matchLength && input.regionMatches(true, start, amPm, 0, amPm.length())) {
+              match = i;
+              matchLength = amPm.length();
+            }
+          }
+          if (match < 0) {
+            return null;
+          }
+          values[Field.AM_PM] = match;
+          position = start + matchLength;
+          continue;
+        }
+
+        final int end;
+        if (field.obeyCount) {
+          end = start + field.count;
+          if (end > length) {
+            return null;
+          }
+        } else {
+          end = length;
+        }
+        if (regionMatches(input, position, end, this.nan)) {
+          return DEFER;
+        }
+        final boolean negative = position < end && '-' == input.charAt(position);
+        if (negative) {
+          position++;
+        }
+        if (regionMatches(input, position, end, this.infinity)) {
+          return DEFER;
+        }
+        final int digitsStart = position;
+        int significantDigits = 0;
+        long value = 0;
+        while (position < end) {
+          final int digit = Character.digit(input.charAt(position), 10);
+          if (digit < 0) {
+            break;
+          }
+          if (significantDigits > 0 || digit > 0) {
+            significantDigits++;
+          }
+          value = value * 10 + digit;
+          position++;
+        }
+        if (position == digitsStart) {
+          return null;
+        }
+        if (regionMatches(input, position, end, this.exponent)) {
+          int exponentPosition = position + this.exponent.length();
+          if (exponentPosition < end && '-' == input.charAt(exponentPosition)) {
+            exponentPosition++;
+          }
+          if (exponentPosition < end && Character.digit(input.charAt(exponentPosition), 10) >= 0) {
+            return DEFER;
+          }
+        }
+        if (significantDigits > MAXIMUM_LONG_DIGITS) {
+          value = longValue(input.substring(digitsStart, position), negative);
+        } else if (negative) {
+          value = -value;
+        }
+        // Number.intValue() of the value DecimalFormat returns.
+        int intValue = (int) value;
+        switch (field.kind) {
+          case Field.MONTH:
+            intValue--;
+            break;
+          case Field.HOUR:
+            if (12 == intValue) {
+              intValue = 0;
+            }
+            break;
+          default:
+            break;
+        }
+        values[field.kind] = intValue;
+      }
+      if (!remainderIsWhitespace(input, position)) {
+        return null;
+      }
+      return resolve(values);
+    }
+
+    private static boolean regionMatches(String input, int position, int end, String text) {
+      return position + text.length() <= end && input.startsWith(text, position);
+    }
+
+    /**
+     * Method reads more digits than fit a long the way DecimalFormat does.
+     */
+    private static long longValue(String digits, boolean negative) {
+      try {
+        return Long.parseLong(negative ? "-" + digits : digits);
+      } catch (NumberFormatException e) {
+        return negative ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+      }
+    }
+
+    private Date resolve(int[] values) {
+      final long hour = this.hourOfDay ?
+          values[Field.HOUR_OF_DAY] :
+          values[Field.HOUR] + 12L * values[Field.AM_PM];
+      final long month = values[Field.MONTH];
+      final long year = values[Field.YEAR] + Math.floorDiv(month, 12L);
+      // GregorianCalendar picks the calendar system by the year before the month rolls over.
+      if (values[Field.YEAR] >= GREGORIAN_CUTOVER_YEAR && values[Field.YEAR] <= MAXIMUM_YEAR &&
+          year >= GREGORIAN_CUTOVER_YEAR && year <= MAXIMUM_YEAR) {
+        final long epochDay = LocalDate.of((int) year, (int) Math.floorMod(month, 12L) + 1, 1).toEpochDay() +
+            values[Field.DAY_OF_MONTH] - 1L;
+        final long localMillis = epochDay * 86400000L +
+            hour * 3600000L +
+            values[Field.MINUTE] * 60000L +
+            values[Field.SECOND] * 1000L +
+            values[Field.MILLISECOND];
+        if (localMillis >= MINIMUM_LOCAL_MILLIS && localMillis < MAXIMUM_LOCAL_MILLIS) {
+          if (null != this.fixedOffset) {
+            return new Date(localMillis - this.fixedOffset.getTotalSeconds() * 1000L);
+          }
+          final LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000L), 0, ZoneOffset.UTC);
+          final ZonedDateTime zoned = ZonedDateTime.ofLocal(local, this.zoneId, null)
+              .withLaterOffsetAtOverlap();
+          final long result = zoned.toEpochSecond() * 1000L + Math.floorMod(localMillis, 1000L);
+          // TimeZone has no local mean time, so it uses a different offset than java.time for old dates.
+          if (this.timeZone.getOffset(result) == zoned.getOffset().getTotalSeconds() * 1000) {
+            return new Date(result);
+          }
+        }
+      }
+
+      // The calendar switches to the Julian calendar before the Gregorian cutover.
+      final Calendar calendar = (Calendar) this.calendar.clone();
+      calendar.clear();
+      for (Field field : this.fields) {
+        if (null == field.literal) {
+          calendar.set(field.calendarField(), values[field.kind]);
+        }
+      }
+      return calendar.getTime();
+    }
+  }
+
+  /**
+   * Literal text or a field of a compiled pattern.
+   */
+  static final class Field {
+    static final int YEAR = 0;
+    static final int MONTH = 1;
+    static final int DAY_OF_MONTH = 2;
+    static final int HOUR_OF_DAY = 3;
+    static final int HOUR = 4;
+    static final int AM_PM = 5;
+    static final int MINUTE = 6;
+    static final int SECOND = 7;
+    static final int MILLISECOND = 8;
+
+    final int kind;
+    final int count;
+    final boolean obeyCount;
+    final String literal;
+
+    Field(int kind, int count, boolean obeyCount, String literal) {
+      this.kind = kind;
+      this.count = count;
+      this.obeyCount = obeyCount;
+      this.literal = literal;
+    }
+
+    int calendarField() {
+      switch (this.kind) {
+        case YEAR:
+          return Calendar.YEAR;
+        case MONTH:
+          return Calendar.MONTH;
+        case DAY_OF_MONTH:
+          return Calendar.DAY_OF_MONTH;
+        case HOUR_OF_DAY:
+          return Calendar.HOUR_OF_DAY;
+        case HOUR:
+          return Calendar.HOUR;
+        case AM_PM:
+          return Calendar.AM_PM;
+        case MINUTE:
+          return Calendar.MINUTE;
+        case SECOND:
+          return Calendar.SECOND;
+        default:
+          return Calendar.MILLISECOND;
+      }
+    }
+  }
+
+  static final class Token {
+    final char letter;
+    final int count;
+    final String literal;
+
+    Token(char letter, int count, String literal) {
+      this.letter = letter;
+      this.count = count;
+      this.literal = literal;
+    }
+
+    boolean numeric() {
+      switch (this.letter) {
+        case 'y':
+        case 'd':
+        case 'H':
+        case 'h':
+        case 'm':
+        case 's':
+        case 'S':
+          return true;
+        case 'M':
+          return this.count <= 2;
+        default:
+          return false;
+      }
+    }
+  }
+
+  static List<Token> tokenize(String pattern) {
+    final List<Token> result = new ArrayList<>();
+    final StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < pattern.length()) {
+      final char c = pattern.charAt(i);
+      if ('\'' == c) {
+        if (i + 1 < pattern.length() && '\'' == pattern.charAt(i + 1)) {
+          literal.append('\'');
+          i += 2;
+          continue;
+        }
+        i++;
+        while (i < pattern.length()) {
+          if ('\'' == pattern.charAt(i)) {
+            if (i + 1 < pattern.length() && '\'' == pattern.charAt(i + 1)) {
+              literal.append('\'');
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          literal.append(pattern.charAt(i));
+          i++;
+        }
+        i++;
+      } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+        if (literal.length() > 0) {
+          result.add(new Token('\0', 0, literal.toString()));
+          literal.setLength(0);
+        }
+        int count = 1;
+        while (i + count < pattern.length() && c == pattern.charAt(i + count)) {
+          count++;
+        }
+        result.add(new Token(c, count, null));
+        i += count;
+      } else {
+        literal.append(c);
+        i++;
+      }
+    }
+    if (literal.length() > 0) {
+      result.add(new Token('\0', 0, literal.toString()));
+    }
+    return result;
+  }
+
+  /**
+   * @return kind of the field or -1 if the token is not a field that can be compiled.
+   */
+  private static int kind(Token token) {
+    switch (token.letter) {
+      case 'y':
+        return token.count <= 2 ? -1 : Field.YEAR;
+      case 'M':
+        return token.count <= 2 ? Field.MONTH : -1;
+      case 'd':
+        return Field.DAY_OF_MONTH;
+      case 'H':
+        return Field.HOUR_OF_DAY;
+      case 'h':
+        return Field.HOUR;
+      case 'a':
+        return Field.AM_PM;
+      case 'm':
+        return Field.MINUTE;
+      case 's':
+        return Field.SECOND;
+      case 'S':
+        return Field.MILLISECOND;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Method compiles the pattern of the SimpleDateFormat.
+   *
+   * @return fields or null if the format has to be parsed with SimpleDateFormat.
+   */
+  static Field[] compile(SimpleDateFormat format) {
+    if (!format.isLenient() || !(format.getCalendar() instanceof GregorianCalendar)) {
+      return null;
+    }
+    final NumberFormat numberFormat = format.getNumberFormat();
+    if (!(numberFormat instanceof DecimalFormat)) {
+      return null;
+    }
+    final DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
+    if ('0' != decimalFormat.getDecimalFormatSymbols().getZeroDigit() ||
+        !"".equals(decimalFormat.getPositivePrefix()) ||
+        !"-".equals(decimalFormat.getNegativePrefix()) ||
+        !"".equals(decimalFormat.getPositiveSuffix()) ||
+        !"".equals(decimalFormat.getNegativeSuffix()) ||
+        1 != decimalFormat.getMultiplier() ||
+        decimalFormat.isGroupingUsed() ||
+        decimalFormat.isParseBigDecimal() ||
+        !decimalFormat.isParseIntegerOnly()) {
+      return null;
+    }
+
+    final List<Token> tokens = tokenize(format.toPattern());
+    final Field[] result = new Field[tokens.size()];
+    boolean hourOfDay = false;
+    boolean hour = false;
+    for (int i = 0; i < tokens.size(); i++) {
+      final Token token = tokens.get(i);
+      if (null != token.literal) {
+        result[i] = new Field(-1, 0, false, token.literal);
+        continue;
+      }
+      final int kind = kind(token);
+      if (kind < 0) {
+        return null;
+      }
+      hourOfDay |= Field.HOUR_OF_DAY == kind;
+      hour |= Field.HOUR == kind || Field.AM_PM == kind;
+      // SimpleDateFormat limits a field to the number of pattern letters when a numeric field follows.
+      final boolean obeyCount = i + 1 < tokens.size() && tokens.get(i + 1).numeric();
+      result[i] = new Field(kind, token.count, obeyCount, null);
+    }
+    if (hourOfDay && hour) {
+      // Which of the hour fields wins depends on the order the calendar fields were set.
+      return null;
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return this.pattern;
+  }
+}
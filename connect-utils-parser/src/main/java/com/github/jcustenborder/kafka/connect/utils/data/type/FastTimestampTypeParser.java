@@ -0,0 +1,328 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data.type;
+
+import com.google.common.base.Preconditions;
+import org.apache.kafka.connect.data.Schema;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * TimestampTypeParser that reads the common timestamp layouts character by character before
+ * trying the configured formats.
+ * <p>
+ * When the first configured format is yyyy-MM-dd HH:mm:ss or yyyy-MM-dd'T'HH:mm:ss, input that has
+ * exactly that layout is read without the format. The result is the same as the format would give.
+ * <p>
+ * When parseIso8601 is enabled the following layouts are read before the configured formats, and
+ * take precedence over them for input that matches:
+ * <ul>
+ * <li>yyyy-MM-dd HH:mm:ss or yyyy-MM-ddTHH:mm:ss</li>
+ * <li>followed by an optional fraction of 1 to 9 digits, where anything past milliseconds is
+ * dropped</li>
+ * <li>followed by an optional Z, +HH, +HHmm or +HH:mm offset</li>
+ * </ul>
+ * Epoch milliseconds are read when parseEpochMillis is enabled. Timestamps without an offset are
+ * read in the time zone of the first configured format, which is how the configured formats would
+ * read them. Input that does not fit one of these layouts, or that has a field out of range, is
+ * passed to the configured formats.
+ */
+public class FastTimestampTypeParser extends TimestampTypeParser {
+  static final long NO_MATCH = Long.MIN_VALUE;
+  private static final long DAYS_0000_TO_1970 = 719528L;
+  private static final int MAXIMUM_EPOCH_DIGITS = 18;
+  private static final int GREGORIAN_CUTOVER_YEAR = 1583;
+  private static final int LAYOUT_LENGTH = 19;
+
+  final boolean parseEpochMillis;
+  final boolean parseIso8601;
+  /**
+   * Separator of the first configured format if it is one of the layouts read here, otherwise 0.
+   */
+  final char formatSeparator;
+  private final TimeZone zone;
+  private final ZoneId zoneId;
+  private final ZoneOffset fixedOffset;
+
+  public FastTimestampTypeParser() {
+    this(TimeZone.getTimeZone("UTC"), false, true, new SimpleDateFormat("yyyy-MM-dd' 'HH:mm:ss"));
+  }
+
+  /**
+   * @param timeZone         time zone of the parser.
+   * @param parseEpochMillis true to read a string of digits as milliseconds since the epoch. A
+   *                         string of digits is then never passed to the configured formats.
+   * @param dateFormats      formats to try when the input does not match one of the fast layouts.
+   */
+  public FastTimestampTypeParser(TimeZone timeZone, boolean parseEpochMillis, SimpleDateFormat... dateFormats) {
+    this(timeZone, parseEpochMillis, false, dateFormats);
+  }
+
+  /**
+   * @param timeZone         time zone of the parser.
+   * @param parseEpochMillis true to read a string of digits as milliseconds since the epoch. A
+   *                         string of digits is then never passed to the configured formats.
+   * @param parseIso8601     true to read the ISO-8601 style layouts before the configured formats.
+   *                         Input that matches one of them is never passed to the configured
+   *                         formats, even if a configured format would read it differently.
+   * @param dateFormats      formats to try when the input does not match one of the fast layouts.
+   */
+  public FastTimestampTypeParser(TimeZone timeZone, boolean parseEpochMillis, boolean parseIso8601, SimpleDateFormat... dateFormats) {
+    super(timeZone, dateFormats);
+    this.parseEpochMillis = parseEpochMillis;
+    this.parseIso8601 = parseIso8601;
+    this.formatSeparator = dateFormats.length > 0 ? formatSeparator(dateFormats[0]) : 0;
+    this.zone = (TimeZone) (dateFormats.length > 0 ? dateFormats[0].getTimeZone() : timeZone).clone();
+    this.zoneId = this.zone.toZoneId();
+    final ZoneRules rules = this.zoneId.getRules();
+    this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+  }
+
+  /**
+   * Method checks if the format reads the same layout as parseTimestamp() does for input of
+   * exactly LAYOUT_LENGTH characters.
+   *
+   * @return separator between the date and the time or 0 if the format reads a different layout.
+   */
+  static char formatSeparator(SimpleDateFormat format) {
+    if (null == DateFormatCandidate.compile(format)) {
+      return 0;
+    }
+    switch (format.toPattern()) {
+      case "yyyy-MM-dd HH:mm:ss":
+      case "yyyy-MM-dd' 'HH:mm:ss":
+        return ' ';
+      case "yyyy-MM-dd'T'HH:mm:ss":
+        return 'T';
+      default:
+        return 0;
+    }
+  }
+
+  @Override
+  public Object parseString(String s, Schema schema) {
+    Preconditions.checkNotNull(s, "s cannot be null.");
+    long result = NO_MATCH;
+    if (this.parseIso8601) {
+      result = parseTimestamp(s);
+    } else if (0 != this.formatSeparator &&
+        LAYOUT_LENGTH == s.length() &&
+        this.formatSeparator == s.charAt(10) &&
+        digits(s, 0, 4) >= GREGORIAN_CUTOVER_YEAR) {
+      // The configured format reads years before the cutover with the Julian calendar.
+      result = parseTimestamp(s);
+    }
+    if (NO_MATCH == result && this.parseEpochMillis) {
+      result = parseEpochMillis(s);
+    }
+    if (NO_MATCH != result) {
+      return new Date(result);
+    }
+    return super.parseString(s, schema);
+  }
+
+  /**
+   * Method reads the digits in s between start and start + length.
+   *
+   * @return value or -1 if one of the characters is not a digit.
+   */
+  static int digits(String s, int start, int length) {
+    int result = 0;
+    for (int i = start; i < start + length; i++) {
+      final int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  static boolean isLeapYear(long year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Same calculation as LocalDate.toEpochDay() for years 0 through 9999.
+   */
+  static long epochDay(int year, int month, int day) {
+    long total = 365L * year;
+    total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+
+  long parseTimestamp(String s) {
+    final int length = s.length();
+    if (length < LAYOUT_LENGTH ||
+        '-' != s.charAt(4) ||
+        '-' != s.charAt(7) ||
+        (' ' != s.charAt(10) && 'T' != s.charAt(10)) ||
+        ':' != s.charAt(13) ||
+        ':' != s.charAt(16)) {
+      return NO_MATCH;
+    }
+    final int year = digits(s, 0, 4);
+    final int month = digits(s, 5, 2);
+    final int day = digits(s, 8, 2);
+    final int hour = digits(s, 11, 2);
+    final int minute = digits(s, 14, 2);
+    final int second = digits(s, 17, 2);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) ||
+        hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return NO_MATCH;
+    }
+
+    int position = LAYOUT_LENGTH;
+    int millis = 0;
+    if (position < length && '.' == s.charAt(position)) {
+      position++;
+      int fractionDigits = 0;
+      while (position < length && fractionDigits < 9) {
+        final int digit = s.charAt(position) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        if (fractionDigits < 3) {
+          millis = millis * 10 + digit;
+        }
+        fractionDigits++;
+        position++;
+      }
+      if (0 == fractionDigits) {
+        return NO_MATCH;
+      }
+      for (int i = fractionDigits; i < 3; i++) {
+        millis *= 10;
+      }
+    }
+
+    final long localSeconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+    final long epochSeconds;
+    if (position == length) {
+      if (null != this.fixedOffset) {
+        epochSeconds = localSeconds - this.fixedOffset.getTotalSeconds();
+      } else {
+        final LocalDateTime local = LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC);
+        final ZonedDateTime zoned = ZonedDateTime.ofLocal(local, this.zoneId, null)
+            .withLaterOffsetAtOverlap();
+        final int offsetMillis = this.zone.getOffset(zoned.toEpochSecond() * 1000L);
+        if (offsetMillis == zoned.getOffset().getTotalSeconds() * 1000) {
+          epochSeconds = zoned.toEpochSecond();
+        } else {
+          // TimeZone has no local mean time and uses the standard offset for old dates instead.
+          epochSeconds = localSeconds - this.zone.getOffset(localSeconds * 1000L - this.zone.getRawOffset()) / 1000;
+        }
+      }
+    } else {
+      final int offsetSeconds = parseOffset(s, position);
+      if (Integer.MIN_VALUE == offsetSeconds) {
+        return NO_MATCH;
+      }
+      epochSeconds = localSeconds - offsetSeconds;
+    }
+    return epochSeconds * 1000L + millis;
+  }
+
+  /**
+   * Method reads an offset that runs to the end of s.
+   *
+   * @return offset in seconds or Integer.MIN_VALUE if the offset is not valid.
+   */
+  static int parseOffset(String s, int position) {
+    final int length = s.length() - position;
+    final char sign = s.charAt(position);
+    if ('Z' == sign || 'z' == sign) {
+      return 1 == length ? 0 : Integer.MIN_VALUE;
+    }
+    if ('+' != sign && '-' != sign) {
+      return Integer.MIN_VALUE;
+    }
+    final int hours;
+    final int minutes;
+    switch (length) {
+      case 3:
+        hours = digits(s, position + 1, 2);
+        minutes = 0;
+        break;
+      case 5:
+        hours = digits(s, position + 1, 2);
+        minutes = digits(s, position + 3, 2);
+        break;
+      case 6:
+        if (':' != s.charAt(position + 3)) {
+          return Integer.MIN_VALUE;
+        }
+        hours = digits(s, position + 1, 2);
+        minutes = digits(s, position + 4, 2);
+        break;
+      default:
+        return Integer.MIN_VALUE;
+    }
+    if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+      return Integer.MIN_VALUE;
+    }
+    final int result = hours * 3600 + minutes * 60;
+    return '-' == sign ? -result : result;
+  }
+
+  static long parseEpochMillis(String s) {
+    final int length = s.length();
+    final boolean negative = length > 0 && '-' == s.charAt(0);
+    final int start = negative ? 1 : 0;
+    if (length == start || length - start > MAXIMUM_EPOCH_DIGITS) {
+      return NO_MATCH;
+    }
+    long result = 0;
+    for (int i = start; i < length; i++) {
+      final int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return NO_MATCH;
+      }
+      result = result * 10 + digit;
+    }
+    return negative ? -result : result;
+  }
+}
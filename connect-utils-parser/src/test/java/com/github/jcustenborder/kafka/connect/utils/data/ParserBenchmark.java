@@ -0,0 +1,103 @@
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.jcustenborder.kafka.connect.utils.jackson.ObjectMapperFactory;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a document with 200 fields split across 10 nested objects. The missing parameter leaves
+ * out every other field of the input, which is where direct lookups and deep searches differ the
+ * most. The document is also parsed from bytes, once through a JsonNode tree and once from the
+ * tokens.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+  static final int OBJECTS = 10;
+  static final int FIELDS = 20;
+
+  @Param({"false", "true"})
+  public boolean deepFieldSearch;
+
+  @Param({"false", "true"})
+  public boolean missing;
+
+  Parser parser;
+  Schema schema;
+  ObjectNode input;
+  byte[] bytes;
+
+  @Setup
+  public void setup() throws IOException {
+    final SchemaBuilder builder = SchemaBuilder.struct();
+    this.input = JsonNodeFactory.instance.objectNode();
+    for (int i = 0; i < OBJECTS; i++) {
+      final SchemaBuilder childBuilder = SchemaBuilder.struct().optional();
+      final ObjectNode child = this.input.putObject("object" + i);
+      for (int j = 0; j < FIELDS; j++) {
+        final String name = String.format("field%s_%s", i, j);
+        if (j % 2 == 0) {
+          childBuilder.field(name, Schema.OPTIONAL_INT64_SCHEMA);
+          if (!this.missing || j % 4 == 0) {
+            child.put(name, (long) j);
+          }
+        } else {
+          childBuilder.field(name, Schema.OPTIONAL_STRING_SCHEMA);
+          if (!this.missing || j % 4 == 1) {
+            child.put(name, "value" + j);
+          }
+        }
+      }
+      builder.field("object" + i, childBuilder.build());
+    }
+    this.schema = builder.build();
+    this.parser = new Parser(this.deepFieldSearch);
+    this.bytes = ObjectMapperFactory.INSTANCE.writeValueAsBytes(this.input);
+  }
+
+  @Benchmark
+  public Object parseJsonNode() {
+    return this.parser.parseJsonNode(this.schema, this.input);
+  }
+
+  @Benchmark
+  public Object readTree() throws IOException {
+    return this.parser.parseJsonNode(this.schema, ObjectMapperFactory.INSTANCE.readTree(this.bytes));
+  }
+
+  @Benchmark
+  public Object parseJson() {
+    return this.parser.parseJson(this.schema, this.bytes);
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ParserBenchmark.class.getSimpleName())
+            .build()
+    ).run();
+  }
+}
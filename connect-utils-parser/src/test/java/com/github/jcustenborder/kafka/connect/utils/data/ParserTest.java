@@ -0,0 +1,179 @@
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.jcustenborder.kafka.connect.utils.data.type.StringTypeParser;
+import com.github.jcustenborder.kafka.connect.utils.jackson.ObjectMapperFactory;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParserTest {
+  static final Schema SCHEMA = SchemaBuilder.struct()
+      .field("id", Schema.INT64_SCHEMA)
+      .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("tags", SchemaBuilder.array(Schema.STRING_SCHEMA).optional().build())
+      .build();
+
+  static ObjectNode input(long id) {
+    final ObjectNode result = JsonNodeFactory.instance.objectNode();
+    result.put("id", id);
+    result.put("name", "name" + id);
+    result.putArray("tags").add("a").add("b");
+    return result;
+  }
+
+  @Test
+  public void decoderCached() {
+    final Parser parser = new Parser();
+    parser.parseJson(SCHEMA, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+    final Parser.NodeDecoder decoder = parser.decoder(SCHEMA);
+    assertSame(decoder, parser.decoder(SCHEMA));
+    for (long i = 0; i < 10; i++) {
+      final Struct struct = (Struct) parser.parseJsonNode(SCHEMA, input(i));
+      assertEquals(i, struct.getInt64("id"));
+      assertEquals("name" + i, struct.getString("name"));
+      assertEquals(2, struct.getArray("tags").size());
+    }
+
+    parser.registerTypeParser(Schema.STRING_SCHEMA, new StringTypeParser() {
+      @Override
+      public Object parseJsonNode(JsonNode input, Schema schema) {
+        return input.textValue().toUpperCase();
+      }
+    });
+    assertNotSame(decoder, parser.decoder(SCHEMA));
+    assertEquals("NAME1", ((Struct) parser.parseJsonNode(SCHEMA, input(1))).getString("name"));
+    final byte[] json = "{\"id\":1,\"name\":\"name1\"}".getBytes(StandardCharsets.UTF_8);
+    assertEquals("NAME1", ((Struct) parser.parseJson(SCHEMA, json)).getString("name"));
+  }
+
+  @Test
+  public void nullInput() {
+    final Parser parser = new Parser();
+    assertNull(parser.parseJsonNode(Schema.OPTIONAL_STRING_SCHEMA, null));
+    assertThrows(NullPointerException.class, () -> parser.parseJsonNode(Schema.STRING_SCHEMA, null));
+    final ObjectNode input = input(1);
+    input.remove("id");
+    assertThrows(DataException.class, () -> parser.parseJsonNode(SCHEMA, input));
+  }
+
+  @Test
+  public void directFieldLookup() {
+    final Schema schema = SchemaBuilder.struct()
+        .field("id", Schema.OPTIONAL_INT64_SCHEMA)
+        .field("child", SchemaBuilder.struct().optional().field("name", Schema.OPTIONAL_STRING_SCHEMA).build())
+        .build();
+    final ObjectNode input = JsonNodeFactory.instance.objectNode();
+    input.putObject("child").put("id", 12L).put("name", "child");
+
+    final Struct direct = (Struct) new Parser().parseJsonNode(schema, input);
+    assertNull(direct.getInt64("id"));
+    assertEquals("child", direct.getStruct("child").getString("name"));
+
+    final Struct deep = (Struct) new Parser(true).parseJsonNode(schema, input);
+    assertEquals(12L, deep.getInt64("id"));
+  }
+
+  @Test
+  public void mapValues() {
+    final Schema schema = SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).build();
+    final ObjectNode input = JsonNodeFactory.instance.objectNode();
+    input.put("first", 1L);
+    input.put("second", 2L);
+    final Map<?, ?> result = (Map<?, ?>) new Parser().parseJsonNode(schema, input);
+    assertEquals(1L, result.get("first"));
+    assertEquals(2L, result.get("second"));
+  }
+
+  @Test
+  public void parseJson() throws Exception {
+    final Schema schema = SchemaBuilder.struct()
+        .field("id", Schema.INT64_SCHEMA)
+        .field("count", Schema.OPTIONAL_INT32_SCHEMA)
+        .field("price", Decimal.builder(2).optional().build())
+        .field("ratio", Schema.OPTIONAL_FLOAT64_SCHEMA)
+        .field("active", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+        .field("created", Timestamp.builder().optional().build())
+        .field("tags", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+        .field("counts", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).optional().build())
+        .field("child", SchemaBuilder.struct().optional().field("name", Schema.OPTIONAL_STRING_SCHEMA).build())
+        .field("missing", Schema.OPTIONAL_STRING_SCHEMA)
+        .build();
+    final String json = "{\"unknown\":{\"id\":5,\"nested\":[1,{\"a\":[]}]},\"id\":12,\"count\":\"7\"," +
+        "\"price\":12.50,\"ratio\":0.25,\"active\":true,\"created\":\"2017-01-05 01:02:03\"," +
+        "\"tags\":[\"a\",null,\"c\"],\"counts\":{\"first\":1,\"second\":2}," +
+        "\"child\":{\"id\":3,\"name\":\"child\"},\"other\":null}";
+    final byte[] input = json.getBytes(StandardCharsets.UTF_8);
+
+    final Parser parser = new Parser();
+    final Object expected = parser.parseJsonNode(schema, ObjectMapperFactory.INSTANCE.readTree(input));
+    final Struct actual = (Struct) parser.parseJson(schema, input);
+    assertEquals(expected, actual);
+    assertEquals(12L, actual.getInt64("id"));
+    assertEquals(7, actual.getInt32("count"));
+    assertEquals(Arrays.asList("a", null, "c"), actual.getArray("tags"));
+    assertEquals("child", actual.getStruct("child").getString("name"));
+    assertNull(actual.getString("missing"));
+
+    final ByteBuffer heap = ByteBuffer.allocate(input.length + 4);
+    heap.position(2);
+    heap.put(input);
+    heap.position(2);
+    heap.limit(2 + input.length);
+    assertEquals(expected, parser.parseJson(schema, heap));
+    assertEquals(2, heap.position());
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+    direct.put(input);
+    direct.flip();
+    assertEquals(expected, parser.parseJson(schema, direct));
+    assertEquals(0, direct.position());
+
+    assertEquals(expected, new Parser(true).parseJson(schema, input));
+  }
+
+  @Test
+  public void parseJsonStream() throws Exception {
+    final Parser parser = new Parser();
+    final byte[] input = "{\"id\":1,\"name\":\"name1\",\"tags\":[\"a\",\"b\"]} {\"id\":2,\"name\":\"name2\",\"tags\":[\"a\",\"b\"]}"
+        .getBytes(StandardCharsets.UTF_8);
+    try (JsonParser jsonParser = ObjectMapperFactory.INSTANCE.createParser(input)) {
+      for (long i = 1; i <= 2; i++) {
+        jsonParser.nextToken();
+        assertEquals(parser.parseJsonNode(SCHEMA, input(i)), parser.parseJson(SCHEMA, jsonParser));
+      }
+      assertNull(jsonParser.nextToken());
+    }
+  }
+
+  @Test
+  public void parseJsonNull() {
+    final Parser parser = new Parser();
+    assertNull(parser.parseJson(Schema.OPTIONAL_STRING_SCHEMA, "null".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(NullPointerException.class, () -> parser.parseJson(Schema.STRING_SCHEMA, "null".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(DataException.class, () -> parser.parseJson(SCHEMA, "{\"name\":\"name1\"}".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(DataException.class, () -> parser.parseJson(SCHEMA, "{\"id\":null}".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(DataException.class, () -> parser.parseJson(SCHEMA, "{\"id\":1,".getBytes(StandardCharsets.UTF_8)));
+    assertThrows(IllegalStateException.class, () -> parser.parseJson(SCHEMA, "[1]".getBytes(StandardCharsets.UTF_8)));
+    final Struct struct = (Struct) parser.parseJson(SCHEMA, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+    assertNull(struct.getString("name"));
+  }
+}
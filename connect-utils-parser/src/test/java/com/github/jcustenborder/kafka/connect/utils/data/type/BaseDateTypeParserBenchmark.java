@@ -0,0 +1,107 @@
+package com.github.jcustenborder.kafka.connect.utils.data.type;
+
+import org.apache.kafka.connect.data.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a column of CSV style timestamps that match the last of several candidate formats. The
+ * parser is compared with trying each SimpleDateFormat in turn and catching the ParseException.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseDateTypeParserBenchmark {
+  static final int INPUTS = 1000;
+  static final String[] PATTERNS = {
+      "yyyy-MM-dd'T'HH:mm:ss",
+      "MM/dd/yyyy HH:mm:ss",
+      "yyyyMMddHHmmss",
+      "dd.MM.yyyy HH:mm",
+      "yyyy-MM-dd' 'HH:mm:ss.SSS"
+  };
+
+  @Param({"3", "5"})
+  public int formats;
+
+  String[] inputs;
+  SimpleDateFormat[] dateFormats;
+  TimestampTypeParser parser;
+
+  static SimpleDateFormat[] dateFormats(int count) {
+    final SimpleDateFormat[] result = new SimpleDateFormat[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = new SimpleDateFormat(PATTERNS[i]);
+      result[i].setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+    return result;
+  }
+
+  @Setup
+  public void setup() {
+    this.dateFormats = dateFormats(this.formats);
+    this.parser = new TimestampTypeParser(TimeZone.getTimeZone("UTC"), dateFormats(this.formats));
+    final SimpleDateFormat last = this.dateFormats[this.formats - 1];
+    this.inputs = new String[INPUTS];
+    for (int i = 0; i < INPUTS; i++) {
+      this.inputs[i] = last.format(new Date(1500000000000L + i * 3600_123L));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INPUTS)
+  public void simpleDateFormat(Blackhole blackhole) {
+    for (String input : this.inputs) {
+      Date date = null;
+      for (SimpleDateFormat dateFormat : this.dateFormats) {
+        try {
+          date = dateFormat.parse(input);
+          break;
+        } catch (ParseException e) {
+          // try the next format
+        }
+      }
+      blackhole.consume(date);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INPUTS)
+  public void parser(Blackhole blackhole) {
+    for (String input : this.inputs) {
+      blackhole.consume(this.parser.parseString(input, Timestamp.SCHEMA));
+    }
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(BaseDateTypeParserBenchmark.class.getSimpleName())
+            .build()
+    ).run();
+  }
+}
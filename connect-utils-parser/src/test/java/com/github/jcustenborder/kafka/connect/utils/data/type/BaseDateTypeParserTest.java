@@ -0,0 +1,207 @@
+package com.github.jcustenborder.kafka.connect.utils.data.type;
+
+import org.apache.kafka.connect.data.Timestamp;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+public class BaseDateTypeParserTest {
+
+  static SimpleDateFormat format(String pattern, String timeZone) {
+    SimpleDateFormat result = new SimpleDateFormat(pattern);
+    result.setTimeZone(TimeZone.getTimeZone(timeZone));
+    return result;
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> matchesSimpleDateFormat() {
+    final List<Object[]> tests = Arrays.asList(
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-03-12 02:30:00"},
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-11-05 01:30:00"},
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-02-30 25:61:61"},
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-1-5 1:2:3"},
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss.SSS", "2017-01-05 01:02:03.5"},
+        new Object[]{"yyyy-MM-dd", "2017-01-05 01:02:03"},
+        new Object[]{"yyyy-MM-dd", " 2020-01-05"},
+        new Object[]{"yyyy-MM-dd", "2020-01- 5"},
+        new Object[]{"yyyy-MM-dd", "2020-01-05x"},
+        new Object[]{"yyyy-MM-dd", "10000-01-05"},
+        new Object[]{"yyyy-MM-dd", "-5-01-05"},
+        new Object[]{"yyyy-MM-dd", "2020-01-99999999999999999999"},
+        new Object[]{"yyyy-MM-dd", "202E1-01-05"},
+        new Object[]{"yyyyMMdd", "202001051"},
+        new Object[]{"yyyyMMdd", "2020 0105"},
+        new Object[]{"yyyy-MM-dd' 'HH:mm:ss", "2020-01-05 10:\t11:12"},
+        new Object[]{"yyyyMMddHHmmss", "20170105010203"},
+        new Object[]{"MM/dd/yyyy hh:mm a", "01/05/2017 12:15 PM"},
+        new Object[]{"MM/dd/yyyy hh:mm a", "01/05/2017 12:15 am"},
+        new Object[]{"HH:mm:ss", "13:14:15"},
+        new Object[]{"yyyy-MM-dd'T'HH:mm:ss", "1500-01-05T01:02:03"},
+        new Object[]{"yyyy-MM-dd'T'HH:mm:ss", "1850-01-05T01:02:03"},
+        new Object[]{"dd-MMM-yyyy", "05-Jan-2017"},
+        new Object[]{"yy-MM-dd", "17-01-05"},
+        new Object[]{"yyyy-MM-dd'T'HH:mm:ssXXX", "2017-01-05T01:02:03-06:00"}
+    );
+    final List<DynamicTest> result = new ArrayList<>();
+    for (String timeZone : Arrays.asList("UTC", "America/Chicago")) {
+      for (Object[] test : tests) {
+        final String pattern = (String) test[0];
+        final String input = (String) test[1];
+        result.add(dynamicTest(String.format("%s %s %s", timeZone, pattern, input), () -> {
+          assertMatches(format(pattern, timeZone), input);
+        }));
+      }
+    }
+    return result.stream();
+  }
+
+  /**
+   * @return what the SimpleDateFormat returns when it reads the whole input, otherwise null.
+   */
+  static Date expected(SimpleDateFormat format, String input) {
+    final ParsePosition position = new ParsePosition(0);
+    final Date parsed = ((SimpleDateFormat) format.clone()).parse(input, position);
+    return null != parsed && input.substring(position.getIndex()).trim().isEmpty() ? parsed : null;
+  }
+
+  static void assertMatches(SimpleDateFormat format, String input) {
+    final TimestampTypeParser parser = new TimestampTypeParser(format.getTimeZone(), format);
+    assertEquals(expected(format, input), parser.parseDate(input), input);
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> matchesSimpleDateFormatRandom() {
+    final String[] patterns = {
+        "yyyy-MM-dd' 'HH:mm:ss",
+        "yyyy-MM-dd'T'HH:mm:ss.SSS",
+        "yyyyMMddHHmmss",
+        "MM/dd/yyyy hh:mm a",
+        "dd.MM.yyyy"
+    };
+    final String characters = "0123456789-- \t:./TaPM";
+    return Arrays.stream(patterns).map(pattern -> dynamicTest(pattern, () -> {
+      final Random random = new Random(pattern.hashCode());
+      final SimpleDateFormat format = format(pattern, "America/Chicago");
+      for (int i = 0; i < 2000; i++) {
+        final StringBuilder input = new StringBuilder(format.format(new Date(random.nextLong() % 4000000000000L)));
+        for (int change = random.nextInt(3); change > 0; change--) {
+          final int index = random.nextInt(input.length() + 1);
+          if (random.nextBoolean() && index < input.length()) {
+            input.deleteCharAt(index);
+          } else {
+            input.insert(index, characters.charAt(random.nextInt(characters.length())));
+          }
+        }
+        assertMatches(format, input.toString());
+      }
+    }));
+  }
+
+  @Test
+  public void wholeInput() {
+    final TimestampTypeParser parser = new TimestampTypeParser(
+        TimeZone.getTimeZone("UTC"),
+        format("yyyy-MM-dd", "UTC")
+    );
+    assertEquals(new Date(1578182400000L), parser.parseString("2020-01-05 \t", Timestamp.SCHEMA));
+    assertThrows(IllegalStateException.class, () -> parser.parseString("2020-01-05 10:11:12", Timestamp.SCHEMA));
+  }
+
+  @Test
+  public void unambiguous() {
+    final TimestampTypeParser parser = new TimestampTypeParser(
+        TimeZone.getTimeZone("UTC"),
+        format("yyyy-MM-dd'T'HH:mm:ss", "UTC"),
+        format("yyyy-MM-dd", "UTC"),
+        format("yyyy/dd/MM", "UTC"),
+        format("yyyy/MM/dd", "UTC"),
+        format("dd-MMM-yyyy", "UTC"),
+        format("MM.dd.yyyy", "UTC")
+    );
+    assertArrayEquals(new boolean[]{true, true, true, false, false, false}, parser.unambiguous);
+  }
+
+  @Test
+  public void candidates() {
+    assertTrue(DateFormatCandidate.of(format("yyyy-MM-dd", "UTC")) instanceof DateFormatCandidate.CompiledCandidate);
+    assertTrue(DateFormatCandidate.of(format("dd-MMM-yyyy", "UTC")) instanceof DateFormatCandidate.LegacyCandidate);
+  }
+
+  @Test
+  public void multipleFormats() throws ParseException {
+    final TimestampTypeParser parser = new TimestampTypeParser(
+        TimeZone.getTimeZone("UTC"),
+        format("yyyy-MM-dd'T'HH:mm:ss", "UTC"),
+        format("MM/dd/yyyy HH:mm:ss", "UTC"),
+        format("yyyyMMdd", "UTC")
+    );
+    for (int i = 0; i < 3; i++) {
+      assertEquals(format("MM/dd/yyyy HH:mm:ss", "UTC").parse("01/05/2017 01:02:03"), parser.parseString("01/05/2017 01:02:03", Timestamp.SCHEMA));
+      assertEquals(format("yyyy-MM-dd'T'HH:mm:ss", "UTC").parse("2017-01-05T01:02:03"), parser.parseString("2017-01-05T01:02:03", Timestamp.SCHEMA));
+      assertEquals(format("yyyyMMdd", "UTC").parse("20170105"), parser.parseString("20170105", Timestamp.SCHEMA));
+    }
+    assertThrows(IllegalStateException.class, () -> parser.parseString("not a date", Timestamp.SCHEMA));
+  }
+
+  @Test
+  public void formatOrder() throws ParseException {
+    final TimestampTypeParser parser = new TimestampTypeParser(
+        TimeZone.getTimeZone("UTC"),
+        format("yyyy-MM-dd HH:mm:ss", "UTC"),
+        format("yyyy-MM-dd", "UTC")
+    );
+    final Date expected = format("yyyy-MM-dd HH:mm:ss", "UTC").parse("2020-01-05 10:11:12");
+    assertEquals(expected, parser.parseString("2020-01-05 10:11:12", Timestamp.SCHEMA));
+    assertEquals(new Date(1578182400000L), parser.parseString("2020-01-05", Timestamp.SCHEMA));
+    assertEquals(expected, parser.parseString("2020-01-05 10:11:12", Timestamp.SCHEMA));
+    assertThrows(IllegalStateException.class, () -> parser.parseString("2020-01-05 10:11:12 PM", Timestamp.SCHEMA));
+  }
+
+  @Test
+  public void threadSafe() throws Exception {
+    final TimestampTypeParser parser = new TimestampTypeParser(
+        TimeZone.getTimeZone("UTC"),
+        format("yyyy-MM-dd' 'HH:mm:ss", "UTC")
+    );
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        final int offset = thread;
+        futures.add(executorService.submit(() -> {
+          final SimpleDateFormat format = format("yyyy-MM-dd' 'HH:mm:ss", "UTC");
+          for (int i = 0; i < 1000; i++) {
+            final Date expected = new Date((i * 4L + offset) * 86400000L);
+            assertEquals(expected, parser.parseString(format.format(expected), Timestamp.SCHEMA));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}
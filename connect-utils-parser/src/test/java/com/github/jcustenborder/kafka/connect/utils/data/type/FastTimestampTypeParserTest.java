@@ -0,0 +1,136 @@
+package com.github.jcustenborder.kafka.connect.utils.data.type;
+
+import org.apache.kafka.connect.data.Timestamp;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+public class FastTimestampTypeParserTest {
+
+  static FastTimestampTypeParser parser(String timeZone, boolean parseEpochMillis, String... patterns) {
+    return parser(timeZone, parseEpochMillis, true, patterns);
+  }
+
+  static FastTimestampTypeParser parser(String timeZone, boolean parseEpochMillis, boolean parseIso8601, String... patterns) {
+    SimpleDateFormat[] dateFormats = new SimpleDateFormat[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      dateFormats[i] = BaseDateTypeParserTest.format(patterns[i], timeZone);
+    }
+    return new FastTimestampTypeParser(TimeZone.getTimeZone(timeZone), parseEpochMillis, parseIso8601, dateFormats);
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> offsets() {
+    return Arrays.asList(
+        "2017-01-05T01:02:03Z",
+        "2017-01-05T01:02:03.5Z",
+        "2017-01-05T01:02:03.123456789Z",
+        "2017-01-05T01:02:03.123+05:30",
+        "2016-02-29T23:59:59-06:00",
+        "1969-12-31T23:59:59.999Z"
+    ).stream().map(input -> dynamicTest(input, () -> {
+      final Date expected = Date.from(OffsetDateTime.parse(input).toInstant());
+      assertEquals(expected, parser("UTC", false).parseString(input, Timestamp.SCHEMA));
+    }));
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> local() {
+    return Arrays.asList("UTC", "America/Chicago").stream().flatMap(timeZone ->
+        Arrays.asList(
+            "2017-01-05 01:02:03",
+            "2017-07-05T01:02:03.25",
+            "2017-11-05 01:30:00",
+            "2000-02-29 12:00:00"
+        ).stream().map(input -> dynamicTest(timeZone + " " + input, () -> {
+          final Date expected = Date.from(
+              LocalDateTime.parse(input.replace(' ', 'T'))
+                  .atZone(ZoneId.of(timeZone))
+                  .withLaterOffsetAtOverlap()
+                  .toInstant()
+          );
+          assertEquals(expected, parser(timeZone, false, "yyyy-MM-dd' 'HH:mm:ss").parseString(input, Timestamp.SCHEMA));
+        }))
+    );
+  }
+
+  @Test
+  public void epochDay() {
+    for (LocalDate date = LocalDate.of(1, 1, 1); date.getYear() < 3000; date = date.plusDays(13)) {
+      assertEquals(date.toEpochDay(), FastTimestampTypeParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+    }
+  }
+
+  @Test
+  public void epochMillis() {
+    assertEquals(new Date(1500000000123L), parser("UTC", true).parseString("1500000000123", Timestamp.SCHEMA));
+    assertEquals(new Date(-1000L), parser("UTC", true).parseString("-1000", Timestamp.SCHEMA));
+    assertThrows(IllegalStateException.class, () -> parser("UTC", false).parseString("1500000000123", Timestamp.SCHEMA));
+  }
+
+  @Test
+  public void fallback() throws Exception {
+    final FastTimestampTypeParser parser = parser("UTC", false, "MM/dd/yyyy HH:mm:ss", "yyyy-MM-dd' 'HH:mm:ss");
+    assertEquals(
+        BaseDateTypeParserTest.format("MM/dd/yyyy HH:mm:ss", "UTC").parse("01/05/2017 01:02:03"),
+        parser.parseString("01/05/2017 01:02:03", Timestamp.SCHEMA)
+    );
+    assertEquals(
+        BaseDateTypeParserTest.format("yyyy-MM-dd' 'HH:mm:ss", "UTC").parse("2017-02-30 01:02:03"),
+        parser.parseString("2017-02-30 01:02:03", Timestamp.SCHEMA)
+    );
+    assertEquals(FastTimestampTypeParser.NO_MATCH, parser.parseTimestamp("2017-01-05T01:02:03+5"));
+    assertEquals(FastTimestampTypeParser.NO_MATCH, parser.parseTimestamp("2017-01-05T01:02:03."));
+    assertThrows(IllegalStateException.class, () -> parser.parseString("not a date", Timestamp.SCHEMA));
+  }
+
+  @TestFactory
+  public Stream<DynamicTest> configuredFormats() {
+    final List<String[]> tests = Arrays.asList(
+        new String[]{"yyyy-dd-MM HH:mm:ss", "2020-05-01 00:00:00"},
+        new String[]{"yyyy-MM-dd HH:mm:ss.SSS", "2020-05-01 00:00:00.5"},
+        new String[]{"yyyy-MM-dd HH:mm:ss", "2020-05-01 00:00:00.5"},
+        new String[]{"yyyy-MM-dd HH:mm:ss", "2020-05-01 10:11:12"},
+        new String[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-11-05 01:30:00"},
+        new String[]{"yyyy-MM-dd' 'HH:mm:ss", "2017-02-30 01:30:00"},
+        new String[]{"yyyy-MM-dd' 'HH:mm:ss", "1500-01-05 01:02:03"},
+        new String[]{"yyyy-MM-dd' 'HH:mm:ss", "1850-01-05 01:02:03"},
+        new String[]{"yyyy-MM-dd'T'HH:mm:ss", "2020-05-01T10:11:12"},
+        new String[]{"yyyy-MM-dd'T'HH:mm:ss", "2020-05-01T10:11:12Z"}
+    );
+    return Arrays.asList("UTC", "America/Chicago").stream().flatMap(timeZone ->
+        tests.stream().map(test -> dynamicTest(String.format("%s %s %s", timeZone, test[0], test[1]), () -> {
+          final Date expected = BaseDateTypeParserTest.expected(BaseDateTypeParserTest.format(test[0], timeZone), test[1]);
+          final FastTimestampTypeParser parser = parser(timeZone, false, false, test[0]);
+          if (null == expected) {
+            assertThrows(IllegalStateException.class, () -> parser.parseString(test[1], Timestamp.SCHEMA));
+          } else {
+            assertEquals(expected, parser.parseString(test[1], Timestamp.SCHEMA));
+          }
+        }))
+    );
+  }
+
+  @Test
+  public void formatSeparator() {
+    assertEquals(' ', FastTimestampTypeParser.formatSeparator(BaseDateTypeParserTest.format("yyyy-MM-dd HH:mm:ss", "UTC")));
+    assertEquals('T', FastTimestampTypeParser.formatSeparator(BaseDateTypeParserTest.format("yyyy-MM-dd'T'HH:mm:ss", "UTC")));
+    assertEquals(0, FastTimestampTypeParser.formatSeparator(BaseDateTypeParserTest.format("yyyy-dd-MM HH:mm:ss", "UTC")));
+    assertEquals(0, FastTimestampTypeParser.formatSeparator(BaseDateTypeParserTest.format("yyyy-MM-dd HH:mm:ss.SSS", "UTC")));
+  }
+}
@@ -10,6 +10,7 @@ import com.github.jcustenborder.kafka.connect.utils.jackson.ObjectMapperFactory;
 import com.github.jcustenborder.kafka.connect.utils.nodoc.NoDocTestSinkConnector;
 import com.github.jcustenborder.kafka.connect.utils.nodoc.NoDocTestSourceConnector;
 import com.github.jcustenborder.kafka.connect.utils.nodoc.NoDocTestTransformation;
+import com.github.jcustenborder.kafka.connect.utils.transformation.ChainedKeyValueTransformation;
 import com.google.common.collect.ImmutableSet;
 import org.apache.kafka.connect.sink.SinkConnector;
 import org.apache.kafka.connect.source.SourceConnector;
@@ -34,7 +35,8 @@ public class PluginLoaderTest {
         NoDocTestTransformation.class,
         TestTransformation.class,
         ToUpperCase.class,
-        TestKeyAndValueTransformation.class
+        TestKeyAndValueTransformation.class,
+        ChainedKeyValueTransformation.class
     );
     final Set<Class<? extends Transformation>> actual = pluginLoader.findTransformations();
 
@@ -16,6 +16,9 @@
 package com.github.jcustenborder.kafka.connect.utils.data;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Decimal;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
@@ -27,12 +30,20 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public abstract class AbstractConverter<T> {
   private static final Logger log = LoggerFactory.getLogger(AbstractConverter.class);
+  static final int MAXIMUM_PLANS = 256;
+  static final int PARALLEL_THRESHOLD = 1024;
+  static final int MAXIMUM_MAP_KEYS = 1024;
 
   protected abstract T newValue();
 
@@ -70,12 +81,156 @@ public abstract class AbstractConverter<T> {
 
   protected abstract void setNullField(final T result, final String fieldName);
 
+  /**
+   * Flag to determine if the primitive setters that address fields by index should be used for
+   * INT8, INT16, INT32, INT64, FLOAT32, FLOAT64 and BOOLEAN fields of a Struct. Subclasses that
+   * return true must override those setters. Logical types, null values and schemaless maps are
+   * still passed to the setters that take a field name.
+   *
+   * @return true to use the primitive setters.
+   */
+  protected boolean usePrimitiveSetters() {
+    return false;
+  }
+
+  protected void setInt8Field(final T result, final int fieldIndex, final byte value) {
+    throw primitiveSetterNotImplemented("setInt8Field");
+  }
+
+  protected void setInt16Field(final T result, final int fieldIndex, final short value) {
+    throw primitiveSetterNotImplemented("setInt16Field");
+  }
+
+  protected void setInt32Field(final T result, final int fieldIndex, final int value) {
+    throw primitiveSetterNotImplemented("setInt32Field");
+  }
+
+  protected void setInt64Field(final T result, final int fieldIndex, final long value) {
+    throw primitiveSetterNotImplemented("setInt64Field");
+  }
+
+  protected void setFloat32Field(final T result, final int fieldIndex, final float value) {
+    throw primitiveSetterNotImplemented("setFloat32Field");
+  }
+
+  protected void setFloat64Field(final T result, final int fieldIndex, final double value) {
+    throw primitiveSetterNotImplemented("setFloat64Field");
+  }
+
+  protected void setBooleanField(final T result, final int fieldIndex, final boolean value) {
+    throw primitiveSetterNotImplemented("setBooleanField");
+  }
+
+  private UnsupportedOperationException primitiveSetterNotImplemented(String method) {
+    return new UnsupportedOperationException(
+        String.format(
+            "%s.%s(T, int, ...) must be overridden when usePrimitiveSetters() returns true.",
+            getClass().getName(),
+            method
+        )
+    );
+  }
+
   public T convert(final Object value) {
+    return convert(value, null);
+  }
+
+  /**
+   * Method converts the value of each record in order, adding the results to output. Records with
+   * a null value add null to output. The plan for each schema in the batch is looked up once.
+   *
+   * @param records records to convert.
+   * @param output list to add the results to. The list is cleared first so it can be reused
+   *               between batches.
+   * @return output
+   */
+  public List<T> convertAll(final Collection<? extends ConnectRecord<?>> records, final List<T> output) {
+    return convertAll(records, output, null);
+  }
+
+  /**
+   * Method converts the value of each record, adding the results to output in the same order as
+   * records. Batches with more than PARALLEL_THRESHOLD records are split across the supplied
+   * pool. newValue() and the setters must be thread safe to use a pool.
+   *
+   * @param records records to convert.
+   * @param output list to add the results to. The list is cleared first so it can be reused
+   *               between batches.
+   * @param pool ForkJoinPool used to convert large batches. null converts on the calling thread.
+   * @return output
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> convertAll(final Collection<? extends ConnectRecord<?>> records, final List<T> output, final ForkJoinPool pool) {
+    Preconditions.checkNotNull(records, "records cannot be null.");
+    Preconditions.checkNotNull(output, "output cannot be null.");
+    output.clear();
+    final Object[] values = new Object[records.size()];
+    int index = 0;
+    for (ConnectRecord<?> record : records) {
+      values[index++] = record.value();
+    }
+
+    if (null == pool || values.length <= PARALLEL_THRESHOLD) {
+      final Map<Schema, FieldPlan<T>[]> batchPlans = new IdentityHashMap<>();
+      for (Object value : values) {
+        output.add(null == value ? null : convert(value, batchPlans));
+      }
+    } else {
+      final Object[] results = new Object[values.length];
+      pool.invoke(new ConvertTask(values, results, 0, values.length));
+      for (Object result : results) {
+        output.add((T) result);
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Task that converts a range of values, splitting it in half until it is at most
+   * PARALLEL_THRESHOLD values long.
+   */
+  class ConvertTask extends RecursiveAction {
+    final Object[] values;
+    final Object[] results;
+    final int from;
+    final int to;
+
+    ConvertTask(Object[] values, Object[] results, int from, int to) {
+      this.values = values;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= PARALLEL_THRESHOLD) {
+        final Map<Schema, FieldPlan<T>[]> batchPlans = new IdentityHashMap<>();
+        for (int i = this.from; i < this.to; i++) {
+          final Object value = this.values[i];
+          this.results[i] = null == value ? null : convert(value, batchPlans);
+        }
+      } else {
+        final int middle = (this.from + this.to) >>> 1;
+        invokeAll(
+            new ConvertTask(this.values, this.results, this.from, middle),
+            new ConvertTask(this.values, this.results, middle, this.to)
+        );
+      }
+    }
+  }
+
+  T convert(final Object value, final Map<Schema, FieldPlan<T>[]> batchPlans) {
     Preconditions.checkNotNull(value, "value cannot be null.");
     T result = newValue();
 
     if (value instanceof Struct) {
-      convertStruct(result, (Struct) value);
+      final Struct struct = (Struct) value;
+      if (null == batchPlans) {
+        convertStruct(result, struct);
+      } else {
+        convertStruct(result, struct, batchPlans.computeIfAbsent(struct.schema(), this::plan));
+      }
     } else if (value instanceof Map) {
       convertMap(result, (Map) value);
     } else {
@@ -90,70 +245,65 @@ public abstract class AbstractConverter<T> {
     return result;
   }
 
+  /**
+   * Flag to determine if convertMap should remember the class of the value last seen for each key.
+   * Maps with a stable shape, such as records parsed from JSON, can then skip the instanceof checks
+   * for most entries. The checks are only repeated for a key when the class of its value changes.
+   *
+   * @return true to cache the setter for each key.
+   */
+  protected boolean cacheMapKeyTypes() {
+    return false;
+  }
+
+  /**
+   * Method is used to set a value from a schemaless map on the result.
+   */
+  interface MapSetter<T> {
+    void set(T result, String fieldName, Object value);
+  }
+
+  static final class KeyDispatch<T> {
+    final Class<?> type;
+    final MapSetter<T> setter;
+
+    KeyDispatch(Class<?> type, MapSetter<T> setter) {
+      this.type = type;
+      this.setter = setter;
+    }
+  }
+
+  private final Map<String, KeyDispatch<T>> mapKeyDispatch = new ConcurrentHashMap<>();
+  private final MapSetter<T> stringSetter = (result, fieldName, value) -> setStringField(result, fieldName, (String) value);
+  private final MapSetter<T> int8Setter = (result, fieldName, value) -> setInt8Field(result, fieldName, (Byte) value);
+  private final MapSetter<T> int16Setter = (result, fieldName, value) -> setInt16Field(result, fieldName, (Short) value);
+  private final MapSetter<T> int32Setter = (result, fieldName, value) -> setInt32Field(result, fieldName, (Integer) value);
+  private final MapSetter<T> int64Setter = (result, fieldName, value) -> setInt64Field(result, fieldName, (Long) value);
+  private final MapSetter<T> bigIntegerSetter = (result, fieldName, value) -> setInt64Field(result, fieldName, ((BigInteger) value).longValue());
+  private final MapSetter<T> float64Setter = (result, fieldName, value) -> setFloat64Field(result, fieldName, (Double) value);
+  private final MapSetter<T> float32Setter = (result, fieldName, value) -> setFloat32Field(result, fieldName, (Float) value);
+  private final MapSetter<T> decimalSetter = (result, fieldName, value) -> setDecimalField(result, fieldName, (BigDecimal) value);
+  private final MapSetter<T> booleanSetter = (result, fieldName, value) -> setBooleanField(result, fieldName, (Boolean) value);
+  private final MapSetter<T> timestampSetter = (result, fieldName, value) -> setTimestampField(result, fieldName, (Date) value);
+  private final MapSetter<T> bytesSetter = (result, fieldName, value) -> setBytesField(result, fieldName, (byte[]) value);
+  private final MapSetter<T> arraySetter = (result, fieldName, value) -> setArray(result, fieldName, null, (List) value);
+  private final MapSetter<T> mapSetter = (result, fieldName, value) -> setMap(result, fieldName, null, (Map) value);
+
   void convertMap(final T result, Map value) {
-    for (final Object key : value.keySet()) {
-      Preconditions.checkState(key instanceof String, "Map key must be a String.");
-      final String fieldName = (String) key;
-      final Object fieldValue = value.get(key);
+    final boolean cacheKeyTypes = cacheMapKeyTypes();
+    for (final Object item : value.entrySet()) {
+      final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) item;
+      Preconditions.checkState(entry.getKey() instanceof String, "Map key must be a String.");
+      final String fieldName = (String) entry.getKey();
+      final Object fieldValue = entry.getValue();
 
       try {
-
         if (null == fieldValue) {
-          log.trace("convertStruct() - Setting '{}' to null.", fieldName);
           setNullField(result, fieldName);
           continue;
         }
-
-        if (fieldValue instanceof String) {
-          log.trace("convertStruct() - Processing '{}' as string.", fieldName);
-          setStringField(result, fieldName, (String) fieldValue);
-        } else if (fieldValue instanceof Byte) {
-          log.trace("convertStruct() - Processing '{}' as int8.", fieldName);
-          setInt8Field(result, fieldName, (Byte) fieldValue);
-        } else if (fieldValue instanceof Short) {
-          log.trace("convertStruct() - Processing '{}' as int16.", fieldName);
-          setInt16Field(result, fieldName, (Short) fieldValue);
-        } else if (fieldValue instanceof Integer) {
-          log.trace("convertStruct() - Processing '{}' as int32.", fieldName);
-          setInt32Field(result, fieldName, (Integer) fieldValue);
-        } else if (fieldValue instanceof Long) {
-          log.trace("convertStruct() - Processing '{}' as long.", fieldName);
-          setInt64Field(result, fieldName, (Long) fieldValue);
-        } else if (fieldValue instanceof BigInteger) {
-          log.trace("convertStruct() - Processing '{}' as long.", fieldName);
-          setInt64Field(result, fieldName, ((BigInteger) fieldValue).longValue());
-        } else if (fieldValue instanceof Double) {
-          log.trace("convertStruct() - Processing '{}' as float64.", fieldName);
-          setFloat64Field(result, fieldName, (Double) fieldValue);
-        } else if (fieldValue instanceof Float) {
-          log.trace("convertStruct() - Processing '{}' as float32.", fieldName);
-          setFloat32Field(result, fieldName, (Float) fieldValue);
-        } else if (fieldValue instanceof BigDecimal) {
-          log.trace("convertStruct() - Processing '{}' as decimal.", fieldName);
-          setDecimalField(result, fieldName, (BigDecimal) fieldValue);
-        } else if (fieldValue instanceof Boolean) {
-          log.trace("convertStruct() - Processing '{}' as boolean.", fieldName);
-          setBooleanField(result, fieldName, (Boolean) fieldValue);
-        } else if (fieldValue instanceof Date) {
-          log.trace("convertStruct() - Processing '{}' as timestamp.", fieldName);
-          setTimestampField(result, fieldName, (Date) fieldValue);
-        } else if (fieldValue instanceof byte[]) {
-          log.trace("convertStruct() - Processing '{}' as bytes.", fieldName);
-          setBytesField(result, fieldName, (byte[]) fieldValue);
-        } else if (fieldValue instanceof List) {
-          log.trace("convertStruct() - Processing '{}' as array.", fieldName);
-          setArray(result, fieldName, null, (List) fieldValue);
-        } else if (fieldValue instanceof Map) {
-          log.trace("convertStruct() - Processing '{}' as map.", fieldName);
-          setMap(result, fieldName, null, (Map) fieldValue);
-        } else {
-          throw new DataException(
-              String.format(
-                  "%s is not a supported data type.",
-                  fieldValue.getClass().getName()
-              )
-          );
-        }
+        final MapSetter<T> setter = cacheKeyTypes ? cachedMapSetter(fieldName, fieldValue) : mapSetter(fieldValue);
+        setter.set(result, fieldName, fieldValue);
       } catch (Exception ex) {
         throw new DataException(
             String.format("Exception thrown while processing field '%s'", fieldName),
@@ -163,100 +313,217 @@ public abstract class AbstractConverter<T> {
     }
   }
 
+  MapSetter<T> cachedMapSetter(final String fieldName, final Object fieldValue) {
+    final KeyDispatch<T> dispatch = this.mapKeyDispatch.get(fieldName);
+    if (null != dispatch && dispatch.type == fieldValue.getClass()) {
+      return dispatch.setter;
+    }
+    final MapSetter<T> setter = mapSetter(fieldValue);
+    if (null != dispatch || this.mapKeyDispatch.size() < MAXIMUM_MAP_KEYS) {
+      log.trace("cachedMapSetter() - Caching setter for '{}' as {}.", fieldName, fieldValue.getClass().getName());
+      this.mapKeyDispatch.put(fieldName, new KeyDispatch<>(fieldValue.getClass(), setter));
+    }
+    return setter;
+  }
+
+  MapSetter<T> mapSetter(final Object fieldValue) {
+    if (fieldValue instanceof String) {
+      return this.stringSetter;
+    } else if (fieldValue instanceof Byte) {
+      return this.int8Setter;
+    } else if (fieldValue instanceof Short) {
+      return this.int16Setter;
+    } else if (fieldValue instanceof Integer) {
+      return this.int32Setter;
+    } else if (fieldValue instanceof Long) {
+      return this.int64Setter;
+    } else if (fieldValue instanceof BigInteger) {
+      return this.bigIntegerSetter;
+    } else if (fieldValue instanceof Double) {
+      return this.float64Setter;
+    } else if (fieldValue instanceof Float) {
+      return this.float32Setter;
+    } else if (fieldValue instanceof BigDecimal) {
+      return this.decimalSetter;
+    } else if (fieldValue instanceof Boolean) {
+      return this.booleanSetter;
+    } else if (fieldValue instanceof Date) {
+      return this.timestampSetter;
+    } else if (fieldValue instanceof byte[]) {
+      return this.bytesSetter;
+    } else if (fieldValue instanceof List) {
+      return this.arraySetter;
+    } else if (fieldValue instanceof Map) {
+      return this.mapSetter;
+    } else {
+      throw new DataException(
+          String.format(
+              "%s is not a supported data type.",
+              fieldValue.getClass().getName()
+          )
+      );
+    }
+  }
+
+  /**
+   * Method is used to set a field on the result. Implementations are created once per field when a
+   * schema is compiled. The schema of the struct is passed in rather than captured, so a plan does
+   * not keep the schema it is cached under reachable.
+   */
+  interface FieldSetter<T> {
+    void set(T result, Schema schema, Object value);
+  }
+
+  static final class FieldPlan<T> {
+    final Field field;
+    final String fieldName;
+    final FieldSetter<T> setter;
+
+    FieldPlan(Field field, FieldSetter<T> setter) {
+      this.field = field;
+      this.fieldName = field.name();
+      this.setter = setter;
+    }
+  }
+
+  /**
+   * Compiled plans keyed by the identity of the schema. Schemas are held weakly so plans for
+   * schemas that are no longer used can be collected.
+   */
+  private final Cache<Schema, FieldPlan<T>[]> plans = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_PLANS)
+      .build();
+
+  FieldPlan<T>[] plan(Schema schema) {
+    FieldPlan<T>[] result = this.plans.getIfPresent(schema);
+    if (null == result) {
+      result = compile(schema);
+      this.plans.put(schema, result);
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  FieldPlan<T>[] compile(Schema schema) {
+    log.trace("compile() - Compiling plan for schema '{}' with {} field(s).", schema.name(), schema.fields().size());
+    final boolean primitive = usePrimitiveSetters();
+    final List<Field> fields = schema.fields();
+    final FieldPlan<T>[] result = new FieldPlan[fields.size()];
+    for (int i = 0; i < result.length; i++) {
+      final Field field = fields.get(i);
+      FieldSetter<T> setter = primitive ? primitiveSetter(field) : null;
+      if (null == setter) {
+        setter = setter(field);
+      }
+      result[i] = new FieldPlan<>(field, setter);
+    }
+    return result;
+  }
+
+  /**
+   * Method resolves the index based primitive setter for a field.
+   *
+   * @return setter or null if the field is a logical type or not a primitive.
+   */
+  FieldSetter<T> primitiveSetter(Field field) {
+    final String logicalName = field.schema().name();
+    if (org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(logicalName) ||
+        org.apache.kafka.connect.data.Time.LOGICAL_NAME.equals(logicalName) ||
+        Timestamp.LOGICAL_NAME.equals(logicalName)) {
+      return null;
+    }
+    final int fieldIndex = field.index();
+    switch (field.schema().type()) {
+      case INT8:
+        return (result, schema, value) -> setInt8Field(result, fieldIndex, ((Byte) value).byteValue());
+      case INT16:
+        return (result, schema, value) -> setInt16Field(result, fieldIndex, ((Short) value).shortValue());
+      case INT32:
+        return (result, schema, value) -> setInt32Field(result, fieldIndex, ((Integer) value).intValue());
+      case INT64:
+        return (result, schema, value) -> setInt64Field(result, fieldIndex, ((Long) value).longValue());
+      case FLOAT32:
+        return (result, schema, value) -> setFloat32Field(result, fieldIndex, ((Float) value).floatValue());
+      case FLOAT64:
+        return (result, schema, value) -> setFloat64Field(result, fieldIndex, ((Double) value).doubleValue());
+      case BOOLEAN:
+        return (result, schema, value) -> setBooleanField(result, fieldIndex, ((Boolean) value).booleanValue());
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Method resolves the setter for a field based on the type and logical name of the field's
+   * schema.
+   */
+  FieldSetter<T> setter(Field field) {
+    final String fieldName = field.name();
+    final Schema fieldSchema = field.schema();
+    switch (fieldSchema.type()) {
+      case STRING:
+        return (result, schema, value) -> setStringField(result, fieldName, (String) value);
+      case INT8:
+        return (result, schema, value) -> setInt8Field(result, fieldName, (Byte) value);
+      case INT16:
+        return (result, schema, value) -> setInt16Field(result, fieldName, (Short) value);
+      case INT32:
+        if (org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(fieldSchema.name())) {
+          return (result, schema, value) -> setDateField(result, fieldName, (Date) value);
+        } else if (org.apache.kafka.connect.data.Time.LOGICAL_NAME.equals(fieldSchema.name())) {
+          return (result, schema, value) -> setTimeField(result, fieldName, (Date) value);
+        } else {
+          return (result, schema, value) -> setInt32Field(result, fieldName, (Integer) value);
+        }
+      case INT64:
+        if (Timestamp.LOGICAL_NAME.equals(fieldSchema.name())) {
+          return (result, schema, value) -> setTimestampField(result, fieldName, (Date) value);
+        } else {
+          return (result, schema, value) -> setInt64Field(result, fieldName, (Long) value);
+        }
+      case BYTES:
+        if (Decimal.LOGICAL_NAME.equals(fieldSchema.name())) {
+          return (result, schema, value) -> setDecimalField(result, fieldName, (BigDecimal) value);
+        } else {
+          return (result, schema, value) -> setBytesField(result, fieldName, (byte[]) value);
+        }
+      case FLOAT32:
+        return (result, schema, value) -> setFloat32Field(result, fieldName, (Float) value);
+      case FLOAT64:
+        return (result, schema, value) -> setFloat64Field(result, fieldName, (Double) value);
+      case BOOLEAN:
+        return (result, schema, value) -> setBooleanField(result, fieldName, (Boolean) value);
+      case STRUCT:
+        return (result, schema, value) -> setStructField(result, fieldName, (Struct) value);
+      case ARRAY:
+        return (result, schema, value) -> setArray(result, fieldName, schema, (List) value);
+      case MAP:
+        return (result, schema, value) -> setMap(result, fieldName, schema, (Map) value);
+      default:
+        return (result, schema, value) -> {
+          throw new DataException("Unsupported schema.type(): " + fieldSchema.type());
+        };
+    }
+  }
+
   void convertStruct(final T result, Struct struct) {
-    final Schema schema = struct.schema();
+    convertStruct(result, struct, plan(struct.schema()));
+  }
 
-    for (final Field field : schema.fields()) {
-      final String fieldName = field.name();
-      log.trace("convertStruct() - Processing '{}'", field.name());
-      final Object fieldValue = struct.get(field);
+  void convertStruct(final T result, Struct struct, FieldPlan<T>[] plan) {
+    for (final FieldPlan<T> fieldPlan : plan) {
+      final Object fieldValue = struct.get(fieldPlan.field);
 
       try {
         if (null == fieldValue) {
-          log.trace("convertStruct() - Setting '{}' to null.", fieldName);
-          setNullField(result, fieldName);
-          continue;
-        }
-
-        log.trace("convertStruct() - Field '{}'.field().schema().type() = '{}'", fieldName, field.schema().type());
-        switch (field.schema().type()) {
-          case STRING:
-            log.trace("convertStruct() - Processing '{}' as string.", fieldName);
-            setStringField(result, fieldName, (String) fieldValue);
-            break;
-          case INT8:
-            log.trace("convertStruct() - Processing '{}' as int8.", fieldName);
-            setInt8Field(result, fieldName, (Byte) fieldValue);
-            break;
-          case INT16:
-            log.trace("convertStruct() - Processing '{}' as int16.", fieldName);
-            setInt16Field(result, fieldName, (Short) fieldValue);
-            break;
-          case INT32:
-            if (org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(field.schema().name())) {
-              log.trace("convertStruct() - Processing '{}' as date.", fieldName);
-              setDateField(result, fieldName, (Date) fieldValue);
-            } else if (org.apache.kafka.connect.data.Time.LOGICAL_NAME.equals(field.schema().name())) {
-              log.trace("convertStruct() - Processing '{}' as time.", fieldName);
-              setTimeField(result, fieldName, (Date) fieldValue);
-            } else {
-              Integer int32Value = (Integer) fieldValue;
-              log.trace("convertStruct() - Processing '{}' as int32.", fieldName);
-              setInt32Field(result, fieldName, int32Value);
-            }
-            break;
-          case INT64:
-
-            if (Timestamp.LOGICAL_NAME.equals(field.schema().name())) {
-              log.trace("convertStruct() - Processing '{}' as timestamp.", fieldName);
-              setTimestampField(result, fieldName, (Date) fieldValue);
-            } else {
-              Long int64Value = (Long) fieldValue;
-              log.trace("convertStruct() - Processing '{}' as int64.", fieldName);
-              setInt64Field(result, fieldName, int64Value);
-            }
-            break;
-          case BYTES:
-
-            if (Decimal.LOGICAL_NAME.equals(field.schema().name())) {
-              log.trace("convertStruct() - Processing '{}' as decimal.", fieldName);
-              setDecimalField(result, fieldName, (BigDecimal) fieldValue);
-            } else {
-              byte[] bytes = (byte[]) fieldValue;
-              log.trace("convertStruct() - Processing '{}' as bytes.", fieldName);
-              setBytesField(result, fieldName, bytes);
-            }
-            break;
-          case FLOAT32:
-            log.trace("convertStruct() - Processing '{}' as float32.", fieldName);
-            setFloat32Field(result, fieldName, (Float) fieldValue);
-            break;
-          case FLOAT64:
-            log.trace("convertStruct() - Processing '{}' as float64.", fieldName);
-            setFloat64Field(result, fieldName, (Double) fieldValue);
-            break;
-          case BOOLEAN:
-            log.trace("convertStruct() - Processing '{}' as boolean.", fieldName);
-            setBooleanField(result, fieldName, (Boolean) fieldValue);
-            break;
-          case STRUCT:
-            log.trace("convertStruct() - Processing '{}' as struct.", fieldName);
-            setStructField(result, fieldName, (Struct) fieldValue);
-            break;
-          case ARRAY:
-            log.trace("convertStruct() - Processing '{}' as array.", fieldName);
-            setArray(result, fieldName, schema, (List) fieldValue);
-            break;
-          case MAP:
-            log.trace("convertStruct() - Processing '{}' as map.", fieldName);
-            setMap(result, fieldName, schema, (Map) fieldValue);
-            break;
-          default:
-            throw new DataException("Unsupported schema.type(): " + schema.type());
+          setNullField(result, fieldPlan.fieldName);
+        } else {
+          fieldPlan.setter.set(result, struct.schema(), fieldValue);
         }
       } catch (Exception ex) {
         throw new DataException(
-            String.format("Exception thrown while processing field '%s'", fieldName),
+            String.format("Exception thrown while processing field '%s'", fieldPlan.fieldName),
             ex
         );
       }
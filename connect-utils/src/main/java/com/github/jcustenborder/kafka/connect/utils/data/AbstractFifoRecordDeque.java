@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.AbstractQueue;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Base class for the record stores used by SourceRecordDequeImpl that only support adding to the
+ * tail and removing from the head. The Deque methods that map onto those operations are
+ * implemented here, the remaining methods throw UnsupportedOperationException.
+ */
+abstract class AbstractFifoRecordDeque extends AbstractQueue<SourceRecord> implements Deque<SourceRecord> {
+
+  /**
+   * Method adds the records between from (inclusive) and to (exclusive) to the tail of the store.
+   * Stores that can publish several records at once override this.
+   *
+   * @param records array holding the records.
+   * @param from index of the first record to add.
+   * @param to index after the last record to add.
+   * @return number of records that were added, starting at from.
+   */
+  int offerBatch(SourceRecord[] records, int from, int to) {
+    int index = from;
+    while (index < to && offer(records[index])) {
+      index++;
+    }
+    return index - from;
+  }
+
+  @Override
+  public void addLast(SourceRecord record) {
+    add(record);
+  }
+
+  @Override
+  public boolean offerLast(SourceRecord record) {
+    return offer(record);
+  }
+
+  @Override
+  public SourceRecord pollFirst() {
+    return poll();
+  }
+
+  @Override
+  public SourceRecord removeFirst() {
+    return remove();
+  }
+
+  @Override
+  public SourceRecord peekFirst() {
+    return peek();
+  }
+
+  @Override
+  public SourceRecord getFirst() {
+    return element();
+  }
+
+  @Override
+  public SourceRecord pop() {
+    return remove();
+  }
+
+  @Override
+  public SourceRecord peekLast() {
+    throw unsupported("peekLast");
+  }
+
+  @Override
+  public SourceRecord getLast() {
+    throw unsupported("getLast");
+  }
+
+  @Override
+  public void addFirst(SourceRecord record) {
+    throw unsupported("addFirst");
+  }
+
+  @Override
+  public boolean offerFirst(SourceRecord record) {
+    throw unsupported("offerFirst");
+  }
+
+  @Override
+  public void push(SourceRecord record) {
+    throw unsupported("push");
+  }
+
+  @Override
+  public SourceRecord pollLast() {
+    throw unsupported("pollLast");
+  }
+
+  @Override
+  public SourceRecord removeLast() {
+    throw unsupported("removeLast");
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    throw unsupported("remove");
+  }
+
+  @Override
+  public boolean removeFirstOccurrence(Object o) {
+    throw unsupported("removeFirstOccurrence");
+  }
+
+  @Override
+  public boolean removeLastOccurrence(Object o) {
+    throw unsupported("removeLastOccurrence");
+  }
+
+  @Override
+  public Iterator<SourceRecord> descendingIterator() {
+    throw unsupported("descendingIterator");
+  }
+
+  UnsupportedOperationException unsupported(String method) {
+    return new UnsupportedOperationException(
+        String.format(
+            "%s() is not supported by %s. Only FIFO operations are supported.",
+            method,
+            getClass().getSimpleName()
+        )
+    );
+  }
+}
@@ -0,0 +1,540 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch of structs that share a schema stored as one column per field. Each column keeps its values
+ * in a primitive array and a validity bitmap where a set bit marks a non null value.
+ * <ul>
+ * <li>INT8, INT16, INT32 use an IntColumn. Date is stored as days since the epoch and Time as
+ * milliseconds since midnight.</li>
+ * <li>INT64 uses a LongColumn. Timestamp is stored as milliseconds since the epoch.</li>
+ * <li>FLOAT32 and FLOAT64 use a DoubleColumn.</li>
+ * <li>BOOLEAN uses a BooleanColumn.</li>
+ * <li>STRING and BYTES use a BinaryColumn holding offsets into a byte array. Strings are UTF-8.</li>
+ * <li>Decimal, STRUCT, ARRAY and MAP use an ObjectColumn.</li>
+ * </ul>
+ * Arrays grow as rows are added. Calling reset() keeps the arrays so a batch can be reused.
+ */
+public class ColumnarBatch {
+  private final Schema schema;
+  private final Column[] columns;
+  private final Map<String, Integer> columnIndexes;
+  private int capacity;
+  private int rowCount;
+
+  public ColumnarBatch(Schema schema, int capacity) {
+    Preconditions.checkNotNull(schema, "schema cannot be null.");
+    Preconditions.checkArgument(Schema.Type.STRUCT == schema.type(), "schema must be a struct.");
+    Preconditions.checkArgument(capacity > 0, "capacity must be greater than zero.");
+    this.schema = schema;
+    this.capacity = capacity;
+    final List<Field> fields = schema.fields();
+    this.columns = new Column[fields.size()];
+    this.columnIndexes = new HashMap<>(fields.size() * 2);
+    for (Field field : fields) {
+      this.columns[field.index()] = Column.of(field.schema(), capacity);
+      this.columnIndexes.put(field.name(), field.index());
+    }
+  }
+
+  public Schema schema() {
+    return this.schema;
+  }
+
+  public int rowCount() {
+    return this.rowCount;
+  }
+
+  public int columnCount() {
+    return this.columns.length;
+  }
+
+  public Column column(int index) {
+    return this.columns[index];
+  }
+
+  public Column column(String name) {
+    final Integer index = this.columnIndexes.get(name);
+    if (null == index) {
+      throw new DataException(String.format("Schema does not have a field named '%s'.", name));
+    }
+    return this.columns[index];
+  }
+
+  /**
+   * Method removes all rows from the batch. The arrays are kept so the batch can be filled again
+   * without allocating.
+   */
+  public void reset() {
+    for (Column column : this.columns) {
+      column.reset(this.rowCount);
+    }
+    this.rowCount = 0;
+  }
+
+  void startRow() {
+    if (this.rowCount == this.capacity) {
+      this.capacity = this.capacity * 2;
+      for (Column column : this.columns) {
+        column.grow(this.capacity);
+      }
+    }
+  }
+
+  /**
+   * Method clears the values that were written for the row being appended, so a row that failed
+   * part way through does not leak into the next row.
+   */
+  void abortRow() {
+    for (Column column : this.columns) {
+      column.clear(this.rowCount);
+    }
+  }
+
+  void finishRow() {
+    for (Column column : this.columns) {
+      column.finishRow(this.rowCount);
+    }
+    this.rowCount++;
+  }
+
+  static int words(int capacity) {
+    return (capacity + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  public abstract static class Column {
+    final Schema schema;
+    long[] validity;
+
+    Column(Schema schema, int capacity) {
+      this.schema = schema;
+      this.validity = new long[words(capacity)];
+    }
+
+    static Column of(Schema schema, int capacity) {
+      switch (schema.type()) {
+        case INT8:
+        case INT16:
+        case INT32:
+          return new IntColumn(schema, capacity);
+        case INT64:
+          return new LongColumn(schema, capacity);
+        case FLOAT32:
+        case FLOAT64:
+          return new DoubleColumn(schema, capacity);
+        case BOOLEAN:
+          return new BooleanColumn(schema, capacity);
+        case STRING:
+          return new BinaryColumn(schema, capacity);
+        case BYTES:
+          if (Decimal.LOGICAL_NAME.equals(schema.name())) {
+            return new ObjectColumn(schema, capacity);
+          }
+          return new BinaryColumn(schema, capacity);
+        default:
+          return new ObjectColumn(schema, capacity);
+      }
+    }
+
+    public Schema schema() {
+      return this.schema;
+    }
+
+    public boolean isNull(int row) {
+      return (this.validity[row >>> 6] & (1L << row)) == 0;
+    }
+
+    /**
+     * The validity bitmap of the column. Bit n of word n / 64 is set when row n is not null.
+     *
+     * @return bitmap
+     */
+    public long[] validity() {
+      return this.validity;
+    }
+
+    final void setValid(int row) {
+      this.validity[row >>> 6] |= 1L << row;
+    }
+
+    void grow(int capacity) {
+      this.validity = Arrays.copyOf(this.validity, words(capacity));
+    }
+
+    void reset(int rowCount) {
+      Arrays.fill(this.validity, 0, words(rowCount), 0L);
+    }
+
+    void finishRow(int row) {
+    }
+
+    void clear(int row) {
+      this.validity[row >>> 6] &= ~(1L << row);
+    }
+
+    /**
+     * Method is used to set a value that was not passed through one of the primitive setters.
+     */
+    abstract void set(int row, Object value);
+
+    /**
+     * Method returns the value of a row as an object, or null if the row is null.
+     *
+     * @param row row to read.
+     * @return value
+     */
+    public abstract Object get(int row);
+  }
+
+  public static class IntColumn extends Column {
+    int[] values;
+    private final boolean date;
+    private final boolean time;
+
+    IntColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.values = new int[capacity];
+      this.date = org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(schema.name());
+      this.time = org.apache.kafka.connect.data.Time.LOGICAL_NAME.equals(schema.name());
+    }
+
+    public int[] values() {
+      return this.values;
+    }
+
+    public int getInt(int row) {
+      return this.values[row];
+    }
+
+    void setInt(int row, int value) {
+      this.values[row] = value;
+      setValid(row);
+    }
+
+    @Override
+    void set(int row, Object value) {
+      if (this.date) {
+        setInt(row, (int) TimeUnit.MILLISECONDS.toDays(((Date) value).getTime()));
+      } else if (this.time) {
+        setInt(row, (int) ((Date) value).getTime());
+      } else {
+        setInt(row, ((Number) value).intValue());
+      }
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+    @Override
+    public Object get(int row) {
+      return isNull(row) ? null : this.values[row];
+    }
+  }
+
+  public static class LongColumn extends Column {
+    long[] values;
+    private final boolean timestamp;
+
+    LongColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.values = new long[capacity];
+      this.timestamp = Timestamp.LOGICAL_NAME.equals(schema.name());
+    }
+
+    public long[] values() {
+      return this.values;
+    }
+
+    public long getLong(int row) {
+      return this.values[row];
+    }
+
+    void setLong(int row, long value) {
+      this.values[row] = value;
+      setValid(row);
+    }
+
+    @Override
+    void set(int row, Object value) {
+      if (this.timestamp) {
+        setLong(row, ((Date) value).getTime());
+      } else {
+        setLong(row, ((Number) value).longValue());
+      }
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+    @Override
+    public Object get(int row) {
+      return isNull(row) ? null : this.values[row];
+    }
+  }
+
+  public static class DoubleColumn extends Column {
+    double[] values;
+
+    DoubleColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.values = new double[capacity];
+    }
+
+    public double[] values() {
+      return this.values;
+    }
+
+    public double getDouble(int row) {
+      return this.values[row];
+    }
+
+    void setDouble(int row, double value) {
+      this.values[row] = value;
+      setValid(row);
+    }
+
+    @Override
+    void set(int row, Object value) {
+      setDouble(row, ((Number) value).doubleValue());
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+    @Override
+    public Object get(int row) {
+      return isNull(row) ? null : this.values[row];
+    }
+  }
+
+  public static class BooleanColumn extends Column {
+    boolean[] values;
+
+    BooleanColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.values = new boolean[capacity];
+    }
+
+    public boolean[] values() {
+      return this.values;
+    }
+
+    public boolean getBoolean(int row) {
+      return this.values[row];
+    }
+
+    void setBoolean(int row, boolean value) {
+      this.values[row] = value;
+      setValid(row);
+    }
+
+    @Override
+    void set(int row, Object value) {
+      setBoolean(row, (Boolean) value);
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+    @Override
+    public Object get(int row) {
+      return isNull(row) ? null : this.values[row];
+    }
+  }
+
+  /**
+   * Column for variable length values. The bytes for row n are stored in data between offsets[n]
+   * and offsets[n + 1]. Null rows have a length of zero.
+   */
+  public static class BinaryColumn extends Column {
+    int[] offsets;
+    byte[] data;
+
+    BinaryColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.offsets = new int[capacity + 1];
+      this.data = new byte[capacity * 16];
+    }
+
+    public int[] offsets() {
+      return this.offsets;
+    }
+
+    public byte[] data() {
+      return this.data;
+    }
+
+    public byte[] getBytes(int row) {
+      return isNull(row) ? null : Arrays.copyOfRange(this.data, this.offsets[row], this.offsets[row + 1]);
+    }
+
+    public String getString(int row) {
+      if (isNull(row)) {
+        return null;
+      }
+      final int start = this.offsets[row];
+      return new String(this.data, start, this.offsets[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private void ensureData(int length) {
+      if (this.data.length < length) {
+        this.data = Arrays.copyOf(this.data, Math.max(length, this.data.length * 2));
+      }
+    }
+
+    void setBytes(int row, byte[] value) {
+      final int start = this.offsets[row];
+      ensureData(start + value.length);
+      System.arraycopy(value, 0, this.data, start, value.length);
+      this.offsets[row + 1] = start + value.length;
+      setValid(row);
+    }
+
+    /**
+     * Method writes a string as UTF-8. Strings that only contain ASCII characters are copied
+     * straight into the data array without creating an intermediate byte array.
+     */
+    void setString(int row, String value) {
+      final int start = this.offsets[row];
+      final int length = value.length();
+      ensureData(start + length);
+      for (int i = 0; i < length; i++) {
+        final char c = value.charAt(i);
+        if (c >= 0x80) {
+          setBytes(row, value.getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+        this.data[start + i] = (byte) c;
+      }
+      this.offsets[row + 1] = start + length;
+      setValid(row);
+    }
+
+    /**
+     * Method copies the remaining bytes of the buffer without changing its position.
+     */
+    void setBytes(int row, ByteBuffer value) {
+      final int start = this.offsets[row];
+      final int length = value.remaining();
+      ensureData(start + length);
+      value.duplicate().get(this.data, start, length);
+      this.offsets[row + 1] = start + length;
+      setValid(row);
+    }
+
+    @Override
+    void set(int row, Object value) {
+      if (value instanceof String) {
+        setString(row, (String) value);
+      } else if (value instanceof ByteBuffer) {
+        setBytes(row, (ByteBuffer) value);
+      } else {
+        setBytes(row, (byte[]) value);
+      }
+    }
+
+    @Override
+    void clear(int row) {
+      super.clear(row);
+      this.offsets[row + 1] = this.offsets[row];
+    }
+
+    @Override
+    void finishRow(int row) {
+      if (isNull(row)) {
+        this.offsets[row + 1] = this.offsets[row];
+      }
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.offsets = Arrays.copyOf(this.offsets, capacity + 1);
+    }
+
+    @Override
+    public Object get(int row) {
+      return Schema.Type.STRING == this.schema.type() ? getString(row) : getBytes(row);
+    }
+  }
+
+  public static class ObjectColumn extends Column {
+    Object[] values;
+
+    ObjectColumn(Schema schema, int capacity) {
+      super(schema, capacity);
+      this.values = new Object[capacity];
+    }
+
+    @Override
+    void set(int row, Object value) {
+      this.values[row] = value;
+      setValid(row);
+    }
+
+    @Override
+    void reset(int rowCount) {
+      super.reset(rowCount);
+      Arrays.fill(this.values, 0, rowCount, null);
+    }
+
+    @Override
+    void clear(int row) {
+      super.clear(row);
+      this.values[row] = null;
+    }
+
+    @Override
+    void grow(int capacity) {
+      super.grow(capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+    @Override
+    public Object get(int row) {
+      return isNull(row) ? null : this.values[row];
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converter that writes structs into a {@link ColumnarBatch} instead of creating an object per
+ * row. A plan of column setters is compiled once per schema, and fields are written straight into
+ * the column for their index, so there is no row object to transpose afterwards. Null values leave
+ * the validity bit for the row cleared.
+ * <p>
+ * Rows are appended to a batch with convertBatch() or append(). convert() and convertAll() return a
+ * batch with a single row for each struct. Only structs can be converted, and append() only takes
+ * structs with the schema of the batch.
+ */
+public class ColumnarConverter {
+  private static final Logger log = LoggerFactory.getLogger(ColumnarConverter.class);
+
+  /**
+   * Writes the value of a field to its column for the row being appended.
+   */
+  interface ColumnSetter {
+    void set(ColumnarBatch batch, Object value);
+  }
+
+  /**
+   * Compiled plans keyed by the identity of the schema. Schemas are held weakly so plans for
+   * schemas that are no longer used can be collected.
+   */
+  private final Cache<Schema, ColumnSetter[]> plans = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(AbstractConverter.MAXIMUM_PLANS)
+      .build();
+
+  /**
+   * Method converts the values of the records into the batch. The batch is reset first. A record
+   * with a null value produces a row where every column is null.
+   *
+   * @param records records to convert.
+   * @param batch   batch to write to.
+   * @return the batch that was passed in.
+   */
+  public ColumnarBatch convertBatch(final Collection<? extends ConnectRecord<?>> records, final ColumnarBatch batch) {
+    Preconditions.checkNotNull(records, "records cannot be null.");
+    Preconditions.checkNotNull(batch, "batch cannot be null.");
+    batch.reset();
+    for (ConnectRecord<?> record : records) {
+      append(batch, record.value());
+    }
+    return batch;
+  }
+
+  /**
+   * Method appends a row to the batch.
+   *
+   * @param batch batch to write to.
+   * @param value struct to append, or null to append a row where every column is null.
+   */
+  public void append(final ColumnarBatch batch, final Object value) {
+    batch.startRow();
+    if (null != value) {
+      final Struct struct = struct(value);
+      final Schema schema = struct.schema();
+      if (schema != batch.schema() && !schema.equals(batch.schema())) {
+        throw new DataException("Struct schema does not match the schema of the batch.");
+      }
+      try {
+        convertStruct(batch, struct);
+      } catch (RuntimeException ex) {
+        batch.abortRow();
+        throw ex;
+      }
+    }
+    batch.finishRow();
+  }
+
+  /**
+   * Method converts a struct to a batch holding a single row.
+   *
+   * @param value struct to convert.
+   * @return batch with the schema of the struct.
+   */
+  public ColumnarBatch convert(final Object value) {
+    Preconditions.checkNotNull(value, "value cannot be null.");
+    final ColumnarBatch result = new ColumnarBatch(struct(value).schema(), 1);
+    append(result, value);
+    return result;
+  }
+
+  /**
+   * Method converts the value of each record to a batch holding a single row, adding the results to
+   * output in order. Records with a null value add null to output.
+   *
+   * @param records records to convert.
+   * @param output  list to add the results to. The list is cleared first so it can be reused
+   *                between batches.
+   * @return output
+   */
+  public List<ColumnarBatch> convertAll(final Collection<? extends ConnectRecord<?>> records, final List<ColumnarBatch> output) {
+    Preconditions.checkNotNull(records, "records cannot be null.");
+    Preconditions.checkNotNull(output, "output cannot be null.");
+    output.clear();
+    for (ConnectRecord<?> record : records) {
+      final Object value = record.value();
+      output.add(null == value ? null : convert(value));
+    }
+    return output;
+  }
+
+  private static Struct struct(Object value) {
+    if (!(value instanceof Struct)) {
+      throw new DataException(
+          String.format("Only Struct values can be converted to columns. Found %s.", value.getClass().getName())
+      );
+    }
+    return (Struct) value;
+  }
+
+  ColumnSetter[] plan(Schema schema) {
+    ColumnSetter[] result = this.plans.getIfPresent(schema);
+    if (null == result) {
+      result = compile(schema);
+      this.plans.put(schema, result);
+    }
+    return result;
+  }
+
+  ColumnSetter[] compile(Schema schema) {
+    log.trace("compile() - Compiling plan for schema '{}' with {} field(s).", schema.name(), schema.fields().size());
+    final List<Field> fields = schema.fields();
+    final ColumnSetter[] result = new ColumnSetter[fields.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = setter(fields.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Method resolves the setter for a field. Primitive fields are written with the typed setters.
+   * Logical types and everything else are written with the generic setter of the column, which maps
+   * logical types to their primitive representation.
+   */
+  ColumnSetter setter(Field field) {
+    final int fieldIndex = field.index();
+    final String logicalName = field.schema().name();
+    if (!org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(logicalName) &&
+        !org.apache.kafka.connect.data.Time.LOGICAL_NAME.equals(logicalName) &&
+        !Timestamp.LOGICAL_NAME.equals(logicalName)) {
+      switch (field.schema().type()) {
+        case INT8:
+          return (batch, value) -> setInt8Field(batch, fieldIndex, ((Byte) value).byteValue());
+        case INT16:
+          return (batch, value) -> setInt16Field(batch, fieldIndex, ((Short) value).shortValue());
+        case INT32:
+          return (batch, value) -> setInt32Field(batch, fieldIndex, ((Integer) value).intValue());
+        case INT64:
+          return (batch, value) -> setInt64Field(batch, fieldIndex, ((Long) value).longValue());
+        case FLOAT32:
+          return (batch, value) -> setFloat32Field(batch, fieldIndex, ((Float) value).floatValue());
+        case FLOAT64:
+          return (batch, value) -> setFloat64Field(batch, fieldIndex, ((Double) value).doubleValue());
+        case BOOLEAN:
+          return (batch, value) -> setBooleanField(batch, fieldIndex, ((Boolean) value).booleanValue());
+        default:
+          break;
+      }
+    }
+    return (batch, value) -> batch.column(fieldIndex).set(batch.rowCount(), value);
+  }
+
+  void convertStruct(final ColumnarBatch batch, final Struct struct) {
+    final ColumnSetter[] plan = plan(struct.schema());
+    final List<Field> fields = struct.schema().fields();
+    for (int i = 0; i < plan.length; i++) {
+      final Field field = fields.get(i);
+      final Object fieldValue = struct.get(field);
+      if (null == fieldValue) {
+        // Validity bits are cleared when the batch is reset so there is nothing to write.
+        continue;
+      }
+      try {
+        plan[i].set(batch, fieldValue);
+      } catch (Exception ex) {
+        throw new DataException(
+            String.format("Exception thrown while processing field '%s'", field.name()),
+            ex
+        );
+      }
+    }
+  }
+
+  private static ColumnarBatch.IntColumn intColumn(ColumnarBatch batch, int fieldIndex) {
+    return (ColumnarBatch.IntColumn) batch.column(fieldIndex);
+  }
+
+  private static ColumnarBatch.DoubleColumn doubleColumn(ColumnarBatch batch, int fieldIndex) {
+    return (ColumnarBatch.DoubleColumn) batch.column(fieldIndex);
+  }
+
+  protected void setInt8Field(ColumnarBatch result, int fieldIndex, byte value) {
+    intColumn(result, fieldIndex).setInt(result.rowCount(), value);
+  }
+
+  protected void setInt16Field(ColumnarBatch result, int fieldIndex, short value) {
+    intColumn(result, fieldIndex).setInt(result.rowCount(), value);
+  }
+
+  protected void setInt32Field(ColumnarBatch result, int fieldIndex, int value) {
+    intColumn(result, fieldIndex).setInt(result.rowCount(), value);
+  }
+
+  protected void setInt64Field(ColumnarBatch result, int fieldIndex, long value) {
+    ((ColumnarBatch.LongColumn) result.column(fieldIndex)).setLong(result.rowCount(), value);
+  }
+
+  protected void setFloat32Field(ColumnarBatch result, int fieldIndex, float value) {
+    doubleColumn(result, fieldIndex).setDouble(result.rowCount(), value);
+  }
+
+  protected void setFloat64Field(ColumnarBatch result, int fieldIndex, double value) {
+    doubleColumn(result, fieldIndex).setDouble(result.rowCount(), value);
+  }
+
+  protected void setBooleanField(ColumnarBatch result, int fieldIndex, boolean value) {
+    ((ColumnarBatch.BooleanColumn) result.column(fieldIndex)).setBoolean(result.rowCount(), value);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Estimates the size of a record by walking the key, value and headers and adding up the size of
+ * the data they contain. The result approximates the serialized size of the record rather than
+ * the number of bytes it occupies on the heap.
+ */
+class DefaultRecordSizeEstimator implements RecordSizeEstimator {
+  static final RecordSizeEstimator INSTANCE = new DefaultRecordSizeEstimator();
+
+  @Override
+  public long sizeOf(SourceRecord record) {
+    long result = sizeOf(record.topic());
+    result += sizeOf(record.key());
+    result += sizeOf(record.value());
+    for (Header header : record.headers()) {
+      result += sizeOf(header.key());
+      result += sizeOf(header.value());
+    }
+    return result;
+  }
+
+  static long sizeOf(Object value) {
+    if (null == value) {
+      return 0;
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if (value instanceof String) {
+      return ((String) value).length();
+    } else if (value instanceof ByteBuffer) {
+      return ((ByteBuffer) value).remaining();
+    } else if (value instanceof Struct) {
+      final Struct struct = (Struct) value;
+      long result = 0;
+      for (Field field : struct.schema().fields()) {
+        result += sizeOf(struct.get(field));
+      }
+      return result;
+    } else if (value instanceof Collection) {
+      long result = 0;
+      for (Object item : (Collection<?>) value) {
+        result += sizeOf(item);
+      }
+      return result;
+    } else if (value instanceof Map) {
+      long result = 0;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        result += sizeOf(entry.getKey());
+        result += sizeOf(entry.getValue());
+      }
+      return result;
+    } else if (value instanceof Byte || value instanceof Boolean) {
+      return 1;
+    } else if (value instanceof Short) {
+      return 2;
+    } else if (value instanceof Integer || value instanceof Float) {
+      return 4;
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).unscaledValue().bitLength() / 8 + 1;
+    } else {
+      return 8;
+    }
+  }
+}
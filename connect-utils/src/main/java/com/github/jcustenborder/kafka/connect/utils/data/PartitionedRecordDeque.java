@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Multi-producer single-consumer store that keeps a queue per source partition and removes records
+ * from the partitions in turn. Each partition hands out up to its weight in records before the next
+ * partition with records gets a turn, so a partition that floods the deque cannot starve the others.
+ * Records from the same source partition are returned in the order they were added. A partition is
+ * dropped once it has run out of records, so connectors that use a source partition per file or
+ * table do not keep one for every partition they have seen.
+ */
+class PartitionedRecordDeque extends AbstractFifoRecordDeque {
+  private static final Map<String, ?> NULL_PARTITION = ImmutableMap.of();
+  static final int IDLE = 0;
+  static final int SCHEDULED = 1;
+  static final int RETIRED = 2;
+
+  static class Partition {
+    final Map<String, ?> sourcePartition;
+    final int weight;
+    final ConcurrentLinkedQueue<SourceRecord> records = new ConcurrentLinkedQueue<>();
+    /**
+     * IDLE, SCHEDULED when the partition is in the schedule, or RETIRED once it was removed from
+     * the partitions. A retired partition never takes records again.
+     */
+    final AtomicInteger state = new AtomicInteger(IDLE);
+
+    Partition(Map<String, ?> sourcePartition, int weight) {
+      this.sourcePartition = sourcePartition;
+      this.weight = weight;
+    }
+  }
+
+  private final ConcurrentMap<Map<String, ?>, Partition> partitions = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Partition> scheduled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final ToIntFunction<Map<String, ?>> partitionWeigher;
+  private Partition current;
+  private int remaining;
+
+  PartitionedRecordDeque(ToIntFunction<Map<String, ?>> partitionWeigher) {
+    Preconditions.checkNotNull(partitionWeigher, "partitionWeigher cannot be null.");
+    this.partitionWeigher = partitionWeigher;
+  }
+
+  private Partition partition(Map<String, ?> sourcePartition) {
+    Partition result = this.partitions.get(sourcePartition);
+    if (null == result) {
+      result = this.partitions.computeIfAbsent(sourcePartition, key -> {
+        final int weight = this.partitionWeigher.applyAsInt(key);
+        Preconditions.checkState(weight > 0, "Weight for partition %s must be greater than zero.", key);
+        return new Partition(key, weight);
+      });
+    }
+    return result;
+  }
+
+  int partitionCount() {
+    return this.partitions.size();
+  }
+
+  @Override
+  public boolean offer(SourceRecord record) {
+    Preconditions.checkNotNull(record, "record cannot be null.");
+    final Map<String, ?> sourcePartition = null == record.sourcePartition() ? NULL_PARTITION : record.sourcePartition();
+    while (true) {
+      final Partition partition = partition(sourcePartition);
+      partition.records.offer(record);
+      if (schedule(partition)) {
+        this.size.incrementAndGet();
+        return true;
+      }
+      // The consumer retired the partition after finding it empty and will not read it again. Take
+      // the record back and add it to a new partition.
+      this.partitions.remove(sourcePartition, partition);
+      partition.records.remove(record);
+    }
+  }
+
+  /**
+   * Method puts the partition in the schedule unless it is already scheduled.
+   *
+   * @return false if the partition was retired.
+   */
+  private boolean schedule(Partition partition) {
+    while (true) {
+      switch (partition.state.get()) {
+        case SCHEDULED:
+          return true;
+        case RETIRED:
+          return false;
+        default:
+          if (partition.state.compareAndSet(IDLE, SCHEDULED)) {
+            this.scheduled.offer(partition);
+            return true;
+          }
+      }
+    }
+  }
+
+  /**
+   * Method is called by the consumer to find the partition whose turn it is. Partitions that have
+   * run out of records are removed from the schedule and from the partitions. A producer that adds
+   * a record after the partition was found empty will schedule it again, or add the record to a new
+   * partition if this one was already retired.
+   */
+  private Partition select() {
+    while (true) {
+      if (null == this.current) {
+        this.current = this.scheduled.poll();
+        if (null == this.current) {
+          return null;
+        }
+        this.remaining = this.current.weight;
+      }
+      if (!this.current.records.isEmpty()) {
+        return this.current;
+      }
+      final Partition partition = this.current;
+      this.current = null;
+      partition.state.set(IDLE);
+      if (!partition.records.isEmpty()) {
+        if (partition.state.compareAndSet(IDLE, SCHEDULED)) {
+          this.scheduled.offer(partition);
+        }
+      } else if (partition.state.compareAndSet(IDLE, RETIRED)) {
+        this.partitions.remove(partition.sourcePartition, partition);
+      }
+    }
+  }
+
+  @Override
+  public SourceRecord poll() {
+    final Partition partition = select();
+    if (null == partition) {
+      return null;
+    }
+    final SourceRecord result = partition.records.poll();
+    this.size.decrementAndGet();
+    if (--this.remaining == 0) {
+      this.current = null;
+      this.scheduled.offer(partition);
+    }
+    return result;
+  }
+
+  @Override
+  public SourceRecord peek() {
+    final Partition partition = select();
+    return null == partition ? null : partition.records.peek();
+  }
+
+  @Override
+  public int size() {
+    return Math.max(0, this.size.get());
+  }
+
+  @Override
+  public Iterator<SourceRecord> iterator() {
+    return Iterators.unmodifiableIterator(
+        Iterators.concat(
+            this.partitions.values().stream()
+                .map(partition -> partition.records.iterator())
+                .iterator()
+        )
+    );
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * Used by SourceRecordDeque to weigh records when maximumCapacityBytes or batchSizeBytes is set.
+ */
+@FunctionalInterface
+public interface RecordSizeEstimator {
+  /**
+   * Method is used to estimate the size of a record in bytes. The deque calls this method when a
+   * record is added and again when it is removed, so the method must return the same value for the
+   * same record and should be cheap to call.
+   *
+   * @param record record to estimate.
+   * @return estimated size of the record in bytes.
+   */
+  long sizeOf(SourceRecord record);
+}
@@ -19,8 +19,9 @@ import org.apache.kafka.connect.source.SourceRecord;
 
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-public interface SourceRecordDeque extends Deque<SourceRecord> {
+public interface SourceRecordDeque extends Deque<SourceRecord>, AutoCloseable {
   /**
    * Method returns a new list that has an initial capacity of the batch size the deque is configured
    * for.
@@ -28,6 +29,36 @@ public interface SourceRecordDeque extends Deque<SourceRecord> {
    */
   List<SourceRecord> newList();
 
+  /**
+   * Method adds a record to the tail of the deque without blocking. Unlike add() the method does not
+   * wait for capacity or for the configured rate limits. The default implementation calls offer(),
+   * so it only avoids blocking if offer() does.
+   * @param record record to add.
+   * @return true if the record was added. false if the deque is full or the write is throttled.
+   */
+  default boolean tryAdd(SourceRecord record) {
+    return offer(record);
+  }
+
+  /**
+   * Method adds the records between from (inclusive) and to (exclusive) to the tail of the deque.
+   * Capacity and rate limits are checked once for the whole range rather than once per record, and
+   * the records are published to the underlying store in bulk where it supports it. Blocks like
+   * add() if the deque is full. The default implementation calls offer() for each record and stops at
+   * the first record that is not accepted.
+   * @param records array holding the records to add.
+   * @param from index of the first record to add.
+   * @param to index after the last record to add.
+   * @return number of records that were added.
+   */
+  default int offerBatch(SourceRecord[] records, int from, int to) {
+    int count = 0;
+    for (int i = from; i < to && offer(records[i]); i++) {
+      count++;
+    }
+    return count;
+  }
+
   /**
    * Method will create a new list based on the batch size and drain records to it.
    * @return
@@ -45,6 +76,51 @@ public interface SourceRecordDeque extends Deque<SourceRecord> {
    * @return
    */
   List<SourceRecord> getBatch();
+
+  /**
+   * Method will drain a batch of records, waiting up to the timeout for records to arrive. Unlike
+   * getBatch(int) the method returns as soon as a record is added instead of waiting for the whole
+   * timeout. The default implementation calls getBatch(long, TimeUnit, int) with a
+   * minimumBatchSize of 1.
+   * @param timeout how long to wait for records before giving up, in units of unit.
+   * @param unit TimeUnit determining how to interpret the timeout parameter.
+   * @return list of records or null if no records arrived before the timeout.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  default List<SourceRecord> getBatch(long timeout, TimeUnit unit) throws InterruptedException {
+    return getBatch(timeout, unit, 1);
+  }
+
+  /**
+   * Method will drain a batch of records once at least minimumBatchSize records are available or the
+   * timeout has elapsed, whichever happens first. If the timeout elapses the records that are
+   * available are returned even if there are fewer than minimumBatchSize. The default
+   * implementation checks size() every millisecond and then calls getBatch(0).
+   * @param timeout how long to wait for records before giving up, in units of unit.
+   * @param unit TimeUnit determining how to interpret the timeout parameter.
+   * @param minimumBatchSize number of records to wait for before returning early.
+   * @return list of records or null if no records arrived before the timeout.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  default List<SourceRecord> getBatch(long timeout, TimeUnit unit, int minimumBatchSize) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long remaining;
+    while (size() < minimumBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+      TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+    return getBatch(0);
+  }
+
+  /**
+   * Method returns a list returned by getBatch() to the pool so it can be reused by a later call.
+   * The list must no longer be used by the caller, for example call this once the records in the
+   * batch have been committed. Does nothing unless batchListPoolSize is set on the builder, or when
+   * the pool is full. The default implementation does nothing.
+   * @param batch list returned by getBatch().
+   */
+  default void recycle(List<SourceRecord> batch) {
+  }
+
   /**
    * Method is used drain the records from the queue to the supplied list. newList() should be called
    * to create a list that has the same initial capacity of the batch size.
@@ -64,4 +140,12 @@ public interface SourceRecordDeque extends Deque<SourceRecord> {
    */
   @Deprecated
   boolean drain(List<SourceRecord> records, int emptyWaitMs);
+
+  /**
+   * Method removes the metrics the deque registered and deletes any records that were spilled to
+   * disk. Records held in memory are not affected. The default implementation does nothing.
+   */
+  @Override
+  default void close() {
+  }
 }
@@ -16,8 +16,17 @@
 package com.github.jcustenborder.kafka.connect.utils.data;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.RateLimiter;
+import org.apache.kafka.common.metrics.Metrics;
 import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.File;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.ToIntFunction;
 
 public class SourceRecordDequeBuilder {
   private SourceRecordDequeBuilder() {
@@ -31,6 +40,22 @@ public class SourceRecordDequeBuilder {
   private int maximumCapacityWaitMs = 100;
   private int maximumCapacityTimeoutMs = 60000;
   private RateLimiter writeRateLimiter = null;
+  private TokenBucket recordRateLimit = null;
+  private TokenBucket byteRateLimit = null;
+  private Metrics metrics = null;
+  private Map<String, String> metricTags = ImmutableMap.of();
+  private File spillDirectory = null;
+  private int spillThreshold = 10000;
+  private long spillSegmentBytes = 64L * 1024L * 1024L;
+  private SourceRecordSerializer spillSerializer = null;
+  private int batchListPoolSize = 0;
+  private boolean signalOnDrain = false;
+  private boolean ringBuffer = false;
+  private long maximumCapacityBytes = Long.MAX_VALUE;
+  private long batchSizeBytes = Long.MAX_VALUE;
+  private RecordSizeEstimator sizeEstimator = DefaultRecordSizeEstimator.INSTANCE;
+  private boolean fairPartitionDrain = false;
+  private ToIntFunction<Map<String, ?>> partitionWeigher = sourcePartition -> 1;
 
   public int maximumCapacity() {
     return this.maximumCapacity;
@@ -77,15 +102,296 @@ public class SourceRecordDequeBuilder {
     return this;
   }
 
+  /**
+   * @deprecated use {@link #recordRateLimit(TokenBucket)}.
+   * @return RateLimiter
+   */
+  @Deprecated
   public RateLimiter writeRateLimiter() {
     return this.writeRateLimiter;
   }
 
+  /**
+   * The RateLimiter is converted to a TokenBucket at the rate it is configured with when the deque
+   * is built. Later changes to the RateLimiter's rate are not picked up.
+   * @param writeRateLimiter rate limiter for records written to the deque.
+   * @return builder
+   * @deprecated use {@link #recordRateLimit(TokenBucket)}.
+   */
+  @Deprecated
   public SourceRecordDequeBuilder writeRateLimiter(RateLimiter writeRateLimiter) {
     this.writeRateLimiter = writeRateLimiter;
     return this;
   }
 
+  public TokenBucket recordRateLimit() {
+    return this.recordRateLimit;
+  }
+
+  /**
+   * Limits the number of records per second that can be written to the deque. Blocking methods such
+   * as add() wait for permits, tryAdd() returns false when none are available. The bucket can be
+   * shared between deques and its rate changed while they are in use.
+   * @param recordRateLimit token bucket holding one permit per record.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder recordRateLimit(TokenBucket recordRateLimit) {
+    this.recordRateLimit = recordRateLimit;
+    return this;
+  }
+
+  public TokenBucket byteRateLimit() {
+    return this.byteRateLimit;
+  }
+
+  /**
+   * Limits the number of bytes per second that can be written to the deque. The size of each record
+   * is determined by the sizeEstimator.
+   * @param byteRateLimit token bucket holding one permit per byte.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder byteRateLimit(TokenBucket byteRateLimit) {
+    this.byteRateLimit = byteRateLimit;
+    return this;
+  }
+
+  public Metrics metrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Registers metrics for the deque's depth, enqueue rate, time producers are blocked, batch sizes
+   * and the time records spend in the deque under the source-record-deque group. Add a JmxReporter
+   * to the Metrics instance to expose them over JMX. The metrics are removed when the deque is
+   * closed.
+   * @param metrics metrics registry to add the deque's metrics to.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder metrics(Metrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  public Map<String, String> metricTags() {
+    return this.metricTags;
+  }
+
+  /**
+   * Tags added to each metric. Deques that share a Metrics instance need different tags, for
+   * example the connector name and task id.
+   * @param metricTags tags for the metrics of this deque.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder metricTags(Map<String, String> metricTags) {
+    this.metricTags = metricTags;
+    return this;
+  }
+
+  public File spillDirectory() {
+    return this.spillDirectory;
+  }
+
+  /**
+   * Enables spilling to disk. Once spillThreshold records are held in memory, further records are
+   * appended to segment files in this directory and read back by getBatch in the order they were
+   * added. maximumCapacity still limits the total number of records in the deque. When
+   * maximumCapacityBytes is set it limits the bytes held in memory rather than in the whole deque,
+   * so records past it are spilled instead of making producers wait. Spilled records are deleted
+   * when the deque is closed and do not survive a restart. Requires a spillSerializer.
+   * @param spillDirectory directory to write segment files to.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder spillDirectory(File spillDirectory) {
+    this.spillDirectory = spillDirectory;
+    return this;
+  }
+
+  public int spillThreshold() {
+    return this.spillThreshold;
+  }
+
+  /**
+   * Number of records to hold in memory before spilling to disk.
+   * @param spillThreshold number of records.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder spillThreshold(int spillThreshold) {
+    this.spillThreshold = spillThreshold;
+    return this;
+  }
+
+  public long spillSegmentBytes() {
+    return this.spillSegmentBytes;
+  }
+
+  /**
+   * Size in bytes after which a new segment file is started. A segment is deleted once all of its
+   * records have been read back.
+   * @param spillSegmentBytes size of a segment in bytes.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder spillSegmentBytes(long spillSegmentBytes) {
+    this.spillSegmentBytes = spillSegmentBytes;
+    return this;
+  }
+
+  public SourceRecordSerializer spillSerializer() {
+    return this.spillSerializer;
+  }
+
+  /**
+   * Serializer used to write records to and read them from the spill directory.
+   * @param spillSerializer serializer for spilled records.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder spillSerializer(SourceRecordSerializer spillSerializer) {
+    this.spillSerializer = spillSerializer;
+    return this;
+  }
+
+  public int batchListPoolSize() {
+    return this.batchListPoolSize;
+  }
+
+  /**
+   * Number of batch lists to keep for reuse. Lists passed to recycle() are cleared and handed out
+   * again by getBatch() instead of allocating a new list for each batch. 0 disables pooling.
+   * @param batchListPoolSize maximum number of lists in the pool.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder batchListPoolSize(int batchListPoolSize) {
+    this.batchListPoolSize = batchListPoolSize;
+    return this;
+  }
+
+  TokenBucket effectiveRecordRateLimit() {
+    if (null != this.recordRateLimit || null == this.writeRateLimiter) {
+      return this.recordRateLimit;
+    }
+    return new TokenBucket(this.time, this.writeRateLimiter.getRate(), 1D);
+  }
+
+  public boolean signalOnDrain() {
+    return this.signalOnDrain;
+  }
+
+  /**
+   * Producers blocked on maximumCapacity are woken as soon as a consumer removes records instead of
+   * sleeping for maximumCapacityWaitMs between checks. maximumCapacityTimeoutMs still applies.
+   * @param signalOnDrain true to wake waiting producers when records are drained.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder signalOnDrain(boolean signalOnDrain) {
+    this.signalOnDrain = signalOnDrain;
+    return this;
+  }
+
+  public boolean ringBuffer() {
+    return this.ringBuffer;
+  }
+
+  /**
+   * Records are stored in a preallocated, array backed, multi-producer single-consumer ring buffer
+   * sized to maximumCapacity instead of a ConcurrentLinkedDeque. Adding a record does not allocate
+   * and getBatch drains the buffer in a single pass. Only FIFO operations are supported, so methods
+   * such as addFirst() and pollLast() throw UnsupportedOperationException. Requires maximumCapacity
+   * to be set.
+   * @param ringBuffer true to use the ring buffer.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder ringBuffer(boolean ringBuffer) {
+    this.ringBuffer = ringBuffer;
+    return this;
+  }
+
+  public long maximumCapacityBytes() {
+    return this.maximumCapacityBytes;
+  }
+
+  /**
+   * Producers will wait for capacity once the records in the deque add up to this many bytes as
+   * measured by the sizeEstimator. This applies in addition to maximumCapacity. When spilling is
+   * enabled only the records held in memory are counted, and records past this limit are spilled.
+   * @param maximumCapacityBytes maximum number of bytes to hold in the deque.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder maximumCapacityBytes(long maximumCapacityBytes) {
+    this.maximumCapacityBytes = maximumCapacityBytes;
+    return this;
+  }
+
+  public long batchSizeBytes() {
+    return this.batchSizeBytes;
+  }
+
+  /**
+   * getBatch() stops adding records to a batch before the record that would take it over this many
+   * bytes as measured by the sizeEstimator. A batch always contains at least one record. This
+   * applies in addition to batchSize.
+   * @param batchSizeBytes maximum number of bytes to return in a batch.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder batchSizeBytes(long batchSizeBytes) {
+    this.batchSizeBytes = batchSizeBytes;
+    return this;
+  }
+
+  public RecordSizeEstimator sizeEstimator() {
+    return this.sizeEstimator;
+  }
+
+  /**
+   * Estimator used to weigh records for maximumCapacityBytes and batchSizeBytes. The default walks
+   * the key, value and headers of the record.
+   * @param sizeEstimator estimator to use.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder sizeEstimator(RecordSizeEstimator sizeEstimator) {
+    this.sizeEstimator = sizeEstimator;
+    return this;
+  }
+
+  public boolean fairPartitionDrain() {
+    return this.fairPartitionDrain;
+  }
+
+  /**
+   * Records are queued per source partition and getBatch() takes records from each partition in
+   * turn instead of in strict arrival order. This keeps a single busy partition from starving the
+   * others. Records from the same source partition are still returned in order. Only FIFO operations
+   * are supported, so methods such as addFirst() and pollLast() throw UnsupportedOperationException.
+   * @param fairPartitionDrain true to drain partitions in turn.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder fairPartitionDrain(boolean fairPartitionDrain) {
+    this.fairPartitionDrain = fairPartitionDrain;
+    return this;
+  }
+
+  public ToIntFunction<Map<String, ?>> partitionWeigher() {
+    return this.partitionWeigher;
+  }
+
+  /**
+   * Function used by fairPartitionDrain to determine how many records a source partition can hand
+   * out per turn. The function is called once per source partition. The default gives each
+   * partition a weight of 1, which is a plain round robin.
+   * @param partitionWeigher function returning the weight of a source partition.
+   * @return builder
+   */
+  public SourceRecordDequeBuilder partitionWeigher(ToIntFunction<Map<String, ?>> partitionWeigher) {
+    this.partitionWeigher = partitionWeigher;
+    return this;
+  }
+
+  /**
+   * @return true if the deque has to weigh records.
+   */
+  boolean trackBytes() {
+    return this.maximumCapacityBytes < Long.MAX_VALUE || this.batchSizeBytes < Long.MAX_VALUE ||
+        null != this.byteRateLimit;
+  }
+
   public static final SourceRecordDequeBuilder of() {
     return new SourceRecordDequeBuilder();
   }
@@ -95,15 +401,49 @@ public class SourceRecordDequeBuilder {
     Preconditions.checkArgument(emptyWaitMs >= 0, "emptyWaitMs must be greater than or equal to zero.");
     Preconditions.checkArgument(maximumCapacityWaitMs > 0, "maximumCapacityWaitMs must be greater than zero.");
     Preconditions.checkArgument(maximumCapacityTimeoutMs > 0, "maximumCapacityTimeoutMs must be greater than zero.");
+    Preconditions.checkArgument(maximumCapacityBytes > 0, "maximumCapacityBytes must be greater than zero.");
+    Preconditions.checkArgument(batchSizeBytes > 0, "batchSizeBytes must be greater than zero.");
+    Preconditions.checkNotNull(sizeEstimator, "sizeEstimator cannot be null.");
+    Preconditions.checkNotNull(partitionWeigher, "partitionWeigher cannot be null.");
+    Preconditions.checkNotNull(metricTags, "metricTags cannot be null.");
+    Preconditions.checkArgument(batchListPoolSize >= 0, "batchListPoolSize must be greater than or equal to zero.");
+    Preconditions.checkArgument(
+        !(ringBuffer && fairPartitionDrain),
+        "ringBuffer and fairPartitionDrain cannot be used together."
+    );
+    Preconditions.checkArgument(
+        null == spillDirectory || !(ringBuffer || fairPartitionDrain),
+        "spillDirectory cannot be used with ringBuffer or fairPartitionDrain."
+    );
+    Preconditions.checkArgument(
+        null == spillDirectory || null != spillSerializer,
+        "spillSerializer must be set when spillDirectory is set."
+    );
+    Preconditions.checkArgument(
+        !ringBuffer || maximumCapacity <= SourceRecordRingBuffer.MAXIMUM_CAPACITY,
+        "maximumCapacity must be less than or equal to %s when ringBuffer is enabled.",
+        SourceRecordRingBuffer.MAXIMUM_CAPACITY
+    );
+
+    final Deque<SourceRecord> records;
+    if (null != this.spillDirectory) {
+      records = new SpillingRecordDeque(
+          this.spillDirectory,
+          this.spillThreshold,
+          this.maximumCapacityBytes,
+          this.spillSegmentBytes,
+          this.spillSerializer,
+          trackBytes() ? this.sizeEstimator : null
+      );
+    } else if (this.ringBuffer) {
+      records = new SourceRecordRingBuffer(this.maximumCapacity);
+    } else if (this.fairPartitionDrain) {
+      records = new PartitionedRecordDeque(this.partitionWeigher);
+    } else {
+      records = new ConcurrentLinkedDeque<>();
+    }
 
-    return new SourceRecordDequeImpl(
-        this.time,
-        this.maximumCapacity,
-        this.batchSize,
-        this.emptyWaitMs,
-        this.maximumCapacityWaitMs,
-        this.maximumCapacityTimeoutMs,
-        this.writeRateLimiter);
+    return new SourceRecordDequeImpl(this, records);
   }
 
 }
@@ -16,63 +16,122 @@
 package com.github.jcustenborder.kafka.connect.utils.data;
 
 import com.google.common.base.Preconditions;
-import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.collect.ForwardingDeque;
+import com.google.common.collect.ForwardingIterator;
+import org.apache.kafka.common.errors.InterruptException;
 import org.apache.kafka.common.errors.TimeoutException;
 import org.apache.kafka.common.utils.Time;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implements SourceRecordDeque {
+class SourceRecordDequeImpl extends ForwardingDeque<SourceRecord> implements SourceRecordDeque {
   private static final Logger log = LoggerFactory.getLogger(SourceRecordDequeImpl.class);
+  private final Deque<SourceRecord> records;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
   private final Time time;
   private final int maximumCapacity;
   private final int batchSize;
+  private final long maximumCapacityBytes;
+  private final long batchSizeBytes;
+  private final RecordSizeEstimator sizeEstimator;
+  private final boolean trackBytes;
   private final int emptyWaitMs;
   private final int maximumCapacityWaitMs;
   private final int maximumCapacityTimeoutMs;
-  private final RateLimiter writeRateLimit;
+  private final TokenBucket recordRateLimit;
+  private final TokenBucket byteRateLimit;
+  private final boolean signalOnDrain;
+  private final Object capacityMonitor = new Object();
+  private final AtomicInteger waitingProducers = new AtomicInteger();
+  private final Object arrivalMonitor = new Object();
+  private volatile int arrivalThreshold = 0;
+  private final SourceRecordDequeMetrics metrics;
+  private final BlockingQueue<List<SourceRecord>> batchListPool;
 
 
-  SourceRecordDequeImpl(Time time,
-                        int maximumCapacity,
-                        int batchSize,
-                        int emptyWaitMs, int maximumCapacityWaitMs, int maximumCapacityTimeoutMs, RateLimiter writeRateLimit) {
+  SourceRecordDequeImpl(SourceRecordDequeBuilder builder, Deque<SourceRecord> records) {
     super();
-    this.time = time;
-    this.batchSize = batchSize;
-    this.maximumCapacity = maximumCapacity;
-    this.emptyWaitMs = emptyWaitMs;
-    this.maximumCapacityWaitMs = maximumCapacityWaitMs;
-    this.maximumCapacityTimeoutMs = maximumCapacityTimeoutMs;
-    this.writeRateLimit = writeRateLimit;
+    this.records = records;
+    this.time = builder.time;
+    this.batchSize = builder.batchSize();
+    this.maximumCapacity = builder.maximumCapacity();
+    this.emptyWaitMs = builder.emptyWaitMs();
+    this.maximumCapacityWaitMs = builder.maximumCapacityWaitMs();
+    this.maximumCapacityTimeoutMs = builder.maximumCapacityTimeoutMs();
+    this.recordRateLimit = builder.effectiveRecordRateLimit();
+    this.byteRateLimit = builder.byteRateLimit();
+    this.signalOnDrain = builder.signalOnDrain();
+    // The spilling store keeps the bytes in memory under the limit by spilling, so producers only wait on maximumCapacity.
+    this.maximumCapacityBytes = records instanceof SpillingRecordDeque ? Long.MAX_VALUE : builder.maximumCapacityBytes();
+    this.batchSizeBytes = builder.batchSizeBytes();
+    // Records read back from disk are copies, so the spilling store reports the size of the original.
+    this.sizeEstimator = records instanceof SpillingRecordDeque ?
+        ((SpillingRecordDeque) records)::sizeOf :
+        builder.sizeEstimator();
+    this.trackBytes = builder.trackBytes();
+    this.batchListPool = builder.batchListPoolSize() > 0 ? new ArrayBlockingQueue<>(builder.batchListPoolSize()) : null;
+    this.metrics = null == builder.metrics() ? null :
+        new SourceRecordDequeMetrics(builder.metrics(), builder.metricTags(), this.time, this, this.batchSize, records instanceof SpillingRecordDeque);
   }
 
-  private void waitForCapacity() {
-    waitForCapacity(1);
+  @Override
+  protected Deque<SourceRecord> delegate() {
+    return this.records;
   }
 
-  private void waitForCapacity(int size) {
-    if (null != writeRateLimit) {
-      this.writeRateLimit.acquire(size);
+  /**
+   * Method blocks the producer until the rate limits allow the records to be written and the deque
+   * has capacity for them.
+   */
+  private void waitForCapacity(int count, long bytes) {
+    long blockedMs = 0;
+    if (null != this.recordRateLimit) {
+      blockedMs += this.recordRateLimit.acquire(count);
+    }
+    if (null != this.byteRateLimit) {
+      blockedMs += this.byteRateLimit.acquire(bytes);
     }
-    if (size() >= this.maximumCapacity) {
+    if (!hasCapacity()) {
+      final long start = this.time.milliseconds();
+      awaitCapacity();
+      blockedMs += this.time.milliseconds() - start;
+    }
+    if (null != this.metrics && blockedMs > 0) {
+      this.metrics.producerBlocked(blockedMs);
+    }
+  }
+
+  private boolean hasCapacity() {
+    return size() < this.maximumCapacity && this.bytes.get() < this.maximumCapacityBytes;
+  }
+
+  private void awaitCapacity() {
+    if (!hasCapacity()) {
+      if (this.signalOnDrain) {
+        waitForDrain();
+        return;
+      }
       final long start = this.time.milliseconds();
       long elapsed = 0;
-      while (size() >= this.maximumCapacity) {
+      while (!hasCapacity()) {
         if (elapsed > this.maximumCapacityTimeoutMs) {
-          throw new TimeoutException(
-              String.format(
-                  "Timeout of %s ms exceeded while waiting for Deque to be drained below %s",
-                  this.maximumCapacityTimeoutMs,
-                  this.maximumCapacity
-              )
-          );
+          throw capacityTimeout();
         }
         this.time.sleep(this.maximumCapacityWaitMs);
         elapsed = (this.time.milliseconds() - start);
@@ -80,28 +139,378 @@ class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implemen
     }
   }
 
+  /**
+   * Method blocks the calling thread until a consumer has removed records from the deque. Consumers
+   * notify the capacity monitor when they remove records, so there is no polling interval involved.
+   */
+  private void waitForDrain() {
+    final long deadline = this.time.milliseconds() + this.maximumCapacityTimeoutMs;
+    this.waitingProducers.incrementAndGet();
+    try {
+      log.trace("waitForDrain() - Waiting up to {} ms for capacity.", this.maximumCapacityTimeoutMs);
+      this.time.waitObject(this.capacityMonitor, this::hasCapacity, deadline);
+    } catch (TimeoutException ex) {
+      throw capacityTimeout();
+    } catch (InterruptedException ex) {
+      throw new InterruptException(ex);
+    } finally {
+      this.waitingProducers.decrementAndGet();
+    }
+  }
+
+  private TimeoutException capacityTimeout() {
+    if (this.maximumCapacityBytes < Long.MAX_VALUE) {
+      return new TimeoutException(
+          String.format(
+              "Timeout of %s ms exceeded while waiting for Deque to be drained below %s record(s) and %s byte(s)",
+              this.maximumCapacityTimeoutMs,
+              this.maximumCapacity,
+              this.maximumCapacityBytes
+          )
+      );
+    }
+    return new TimeoutException(
+        String.format(
+            "Timeout of %s ms exceeded while waiting for Deque to be drained below %s",
+            this.maximumCapacityTimeoutMs,
+            this.maximumCapacity
+        )
+    );
+  }
+
+  private long sizeOf(Object record) {
+    return this.trackBytes && record instanceof SourceRecord ? this.sizeEstimator.sizeOf((SourceRecord) record) : 0L;
+  }
+
+  private long sizeOf(SourceRecord[] records, int from, int to) {
+    long result = 0;
+    if (this.trackBytes) {
+      for (int i = from; i < to; i++) {
+        result += sizeOf(records[i]);
+      }
+    }
+    return result;
+  }
+
+  private void recordsAdded(SourceRecord record, int count, long bytes) {
+    if (count <= 0) {
+      return;
+    }
+    if (this.trackBytes) {
+      this.bytes.addAndGet(bytes);
+    }
+    final int size = this.size.addAndGet(count);
+    if (null != this.metrics) {
+      this.metrics.recordsAdded(record, count, size - count + 1);
+    }
+    final int arrivalThreshold = this.arrivalThreshold;
+    if (arrivalThreshold > 0 && size >= arrivalThreshold) {
+      synchronized (this.arrivalMonitor) {
+        this.arrivalMonitor.notifyAll();
+      }
+    }
+  }
+
+  private void recordsRemoved(int count, long bytes) {
+    if (count <= 0) {
+      return;
+    }
+    if (this.trackBytes) {
+      this.bytes.addAndGet(-bytes);
+    }
+    this.size.addAndGet(-count);
+    if (this.signalOnDrain && this.waitingProducers.get() > 0) {
+      synchronized (this.capacityMonitor) {
+        this.capacityMonitor.notifyAll();
+      }
+    }
+  }
+
+  private SourceRecord recordRemoved(SourceRecord result) {
+    if (null != result) {
+      if (null != this.metrics) {
+        this.metrics.recordRemoved(result);
+      }
+      recordsRemoved(1, sizeOf(result));
+    }
+    return result;
+  }
+
+  private boolean recordRemoved(boolean result, Object record) {
+    if (result && record instanceof SourceRecord) {
+      recordRemoved((SourceRecord) record);
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    // Consumers can remove a record before the producer has counted it, so the counter can briefly dip below zero.
+    return Math.max(0, this.size.get());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  long bytes() {
+    return Math.max(0L, this.bytes.get());
+  }
+
+  /**
+   * Method appends a record to the tail of the store. Bounded stores such as the ring buffer can be
+   * full for a moment while other producers are still counting their records, so the offer is
+   * retried until it succeeds.
+   */
+  private void enqueue(SourceRecord record, long bytes) {
+    while (!this.records.offerLast(record)) {
+      Thread.onSpinWait();
+      awaitCapacity();
+    }
+    recordsAdded(record, 1, bytes);
+  }
+
   @Override
   public boolean add(SourceRecord sourceRecord) {
-    waitForCapacity();
-    return super.add(sourceRecord);
+    addLast(sourceRecord);
+    return true;
   }
 
   @Override
   public boolean addAll(Collection<? extends SourceRecord> c) {
-    waitForCapacity(c.size());
-    return super.addAll(c);
+    final SourceRecord[] records = c.toArray(new SourceRecord[0]);
+    return offerBatch(records, 0, records.length) > 0;
+  }
+
+  @Override
+  public int offerBatch(SourceRecord[] records, int from, int to) {
+    Preconditions.checkNotNull(records, "records cannot be null.");
+    Preconditions.checkPositionIndexes(from, to, records.length);
+    final int count = to - from;
+    if (count == 0) {
+      return 0;
+    }
+    for (int i = from; i < to; i++) {
+      Preconditions.checkNotNull(records[i], "records cannot contain null.");
+    }
+    final long bytes = sizeOf(records, from, to);
+    waitForCapacity(count, bytes);
+    if (this.records instanceof AbstractFifoRecordDeque) {
+      final AbstractFifoRecordDeque store = (AbstractFifoRecordDeque) this.records;
+      int index = from;
+      while (index < to) {
+        final int added = store.offerBatch(records, index, to);
+        // A bounded store can fill up part way through, so count what was published before waiting.
+        recordsAdded(records[index], added, added == count ? bytes : sizeOf(records, index, index + added));
+        index += added;
+        if (index < to) {
+          Thread.onSpinWait();
+          awaitCapacity();
+        }
+      }
+    } else {
+      // ConcurrentLinkedDeque links the records into a chain and appends it with a single CAS.
+      this.records.addAll(Arrays.asList(records).subList(from, to));
+      recordsAdded(records[from], count, bytes);
+    }
+    return count;
   }
 
   @Override
   public void addFirst(SourceRecord sourceRecord) {
-    waitForCapacity();
+    if (this.records instanceof AbstractFifoRecordDeque) {
+      // Reject before waiting so a record the store cannot take does not block or use up rate limit permits.
+      throw ((AbstractFifoRecordDeque) this.records).unsupported("addFirst");
+    }
+    final long bytes = sizeOf(sourceRecord);
+    waitForCapacity(1, bytes);
     super.addFirst(sourceRecord);
+    recordsAdded(sourceRecord, 1, bytes);
   }
 
   @Override
   public void addLast(SourceRecord sourceRecord) {
-    waitForCapacity();
-    super.addLast(sourceRecord);
+    final long bytes = sizeOf(sourceRecord);
+    waitForCapacity(1, bytes);
+    enqueue(sourceRecord, bytes);
+  }
+
+  @Override
+  public boolean tryAdd(SourceRecord sourceRecord) {
+    Preconditions.checkNotNull(sourceRecord, "sourceRecord cannot be null.");
+    if (!hasCapacity()) {
+      return false;
+    }
+    final long bytes = sizeOf(sourceRecord);
+    if (null != this.recordRateLimit && !this.recordRateLimit.tryAcquire(1)) {
+      return false;
+    }
+    if (null != this.byteRateLimit && !this.byteRateLimit.tryAcquire(bytes)) {
+      releasePermits(1, 0);
+      return false;
+    }
+    if (!this.records.offerLast(sourceRecord)) {
+      releasePermits(1, bytes);
+      return false;
+    }
+    recordsAdded(sourceRecord, 1, bytes);
+    return true;
+  }
+
+  /**
+   * Method gives back the permits taken by tryAdd() for a record that was not added, so a rejected
+   * record does not lower the rate that can be written.
+   */
+  private void releasePermits(int count, long bytes) {
+    if (null != this.recordRateLimit) {
+      this.recordRateLimit.release(count);
+    }
+    if (null != this.byteRateLimit && bytes > 0) {
+      this.byteRateLimit.release(bytes);
+    }
+  }
+
+  @Override
+  public void push(SourceRecord sourceRecord) {
+    addFirst(sourceRecord);
+  }
+
+  @Override
+  public boolean offer(SourceRecord sourceRecord) {
+    return offerLast(sourceRecord);
+  }
+
+  @Override
+  public boolean offerFirst(SourceRecord sourceRecord) {
+    final boolean result = super.offerFirst(sourceRecord);
+    if (result) {
+      recordsAdded(sourceRecord, 1, sizeOf(sourceRecord));
+    }
+    return result;
+  }
+
+  @Override
+  public boolean offerLast(SourceRecord sourceRecord) {
+    final boolean result = super.offerLast(sourceRecord);
+    if (result) {
+      recordsAdded(sourceRecord, 1, sizeOf(sourceRecord));
+    }
+    return result;
+  }
+
+  @Override
+  public SourceRecord poll() {
+    return recordRemoved(super.poll());
+  }
+
+  @Override
+  public SourceRecord pollFirst() {
+    return recordRemoved(super.pollFirst());
+  }
+
+  @Override
+  public SourceRecord pollLast() {
+    return recordRemoved(super.pollLast());
+  }
+
+  @Override
+  public SourceRecord remove() {
+    return recordRemoved(super.remove());
+  }
+
+  @Override
+  public SourceRecord removeFirst() {
+    return recordRemoved(super.removeFirst());
+  }
+
+  @Override
+  public SourceRecord removeLast() {
+    return recordRemoved(super.removeLast());
+  }
+
+  @Override
+  public SourceRecord pop() {
+    return removeFirst();
+  }
+
+  @Override
+  public boolean remove(Object object) {
+    return recordRemoved(super.remove(object), object);
+  }
+
+  @Override
+  public boolean removeFirstOccurrence(Object o) {
+    return recordRemoved(super.removeFirstOccurrence(o), o);
+  }
+
+  @Override
+  public boolean removeLastOccurrence(Object o) {
+    return recordRemoved(super.removeLastOccurrence(o), o);
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> collection) {
+    return standardRemoveAll(collection);
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> collection) {
+    return standardRetainAll(collection);
+  }
+
+  @Override
+  public void clear() {
+    int count = 0;
+    long bytes = 0;
+    SourceRecord record;
+    while (null != (record = this.records.poll())) {
+      count++;
+      bytes += sizeOf(record);
+      if (null != this.metrics) {
+        this.metrics.recordRemoved(record);
+      }
+    }
+    recordsRemoved(count, bytes);
+  }
+
+  @Override
+  public Iterator<SourceRecord> iterator() {
+    return new CountingIterator(super.iterator());
+  }
+
+  @Override
+  public Iterator<SourceRecord> descendingIterator() {
+    return new CountingIterator(super.descendingIterator());
+  }
+
+  /**
+   * Iterator used to keep the size of the deque in sync when records are removed through an iterator.
+   */
+  class CountingIterator extends ForwardingIterator<SourceRecord> {
+    private final Iterator<SourceRecord> iterator;
+    private SourceRecord current;
+
+    CountingIterator(Iterator<SourceRecord> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    protected Iterator<SourceRecord> delegate() {
+      return this.iterator;
+    }
+
+    @Override
+    public SourceRecord next() {
+      this.current = super.next();
+      return this.current;
+    }
+
+    @Override
+    public void remove() {
+      super.remove();
+      recordRemoved(this.current);
+    }
   }
 
   @Override
@@ -124,17 +533,11 @@ class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implemen
   @Override
   public List<SourceRecord> getBatch(int emptyWaitMs) {
     Preconditions.checkArgument(emptyWaitMs >= 0, "emptyWaitMs should be greater than or equal to 0.");
-    final List<SourceRecord> result = newList();
 
-    int count = 0;
-    SourceRecord record;
     log.trace("drain() - Attempting to draining {} record(s).", this.batchSize);
-    while (count <= this.batchSize && null != (record = this.poll())) {
-      result.add(record);
-      count++;
-    }
+    final List<SourceRecord> result = drainBatch();
 
-    if (count == 0) {
+    if (null == result) {
       if (emptyWaitMs > 0) {
         log.trace("drain() - Found no records, sleeping {} ms.", emptyWaitMs);
         this.time.sleep(emptyWaitMs);
@@ -147,6 +550,65 @@ class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implemen
     return result;
   }
 
+  @Override
+  public List<SourceRecord> getBatch(long timeout, TimeUnit unit) throws InterruptedException {
+    return getBatch(timeout, unit, 1);
+  }
+
+  @Override
+  public List<SourceRecord> getBatch(long timeout, TimeUnit unit, int minimumBatchSize) throws InterruptedException {
+    Preconditions.checkArgument(timeout >= 0, "timeout should be greater than or equal to 0.");
+    Preconditions.checkNotNull(unit, "unit cannot be null.");
+    Preconditions.checkArgument(minimumBatchSize > 0, "minimumBatchSize should be greater than 0.");
+    final int threshold = Math.min(minimumBatchSize, this.batchSize);
+
+    if (size() < threshold) {
+      final long timeoutMs = unit.toMillis(timeout);
+      log.trace("getBatch() - Waiting up to {} ms for {} record(s).", timeoutMs, threshold);
+      this.arrivalThreshold = threshold;
+      try {
+        this.time.waitObject(this.arrivalMonitor, () -> size() >= threshold, this.time.milliseconds() + timeoutMs);
+      } catch (TimeoutException ex) {
+        log.trace("getBatch() - Timeout of {} ms elapsed with {} record(s) available.", timeoutMs, size());
+      } finally {
+        this.arrivalThreshold = 0;
+      }
+    }
+
+    return drainBatch();
+  }
+
+  /**
+   * Method drains a batch into a list taken from the pool, or a new list sized to the number of
+   * records available so that a poll returning a handful of records does not allocate an array
+   * for the whole batch size.
+   *
+   * @return list of records or null if there were no records.
+   */
+  private List<SourceRecord> drainBatch() {
+    final int available = size();
+    if (available == 0) {
+      return null;
+    }
+    List<SourceRecord> result = null == this.batchListPool ? null : this.batchListPool.poll();
+    if (null == result) {
+      result = new ArrayList<>(Math.min(available, this.batchSize));
+    }
+    if (drainTo(result) > 0) {
+      return result;
+    }
+    recycle(result);
+    return null;
+  }
+
+  @Override
+  public void recycle(List<SourceRecord> batch) {
+    if (null != this.batchListPool && batch instanceof ArrayList) {
+      batch.clear();
+      this.batchListPool.offer(batch);
+    }
+  }
+
   @Override
   public boolean drain(List<SourceRecord> records) {
     return drain(records, this.emptyWaitMs);
@@ -157,13 +619,8 @@ class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implemen
     Preconditions.checkNotNull(records, "records cannot be null");
     Preconditions.checkArgument(emptyWaitMs >= 0, "emptyWaitMs should be greater than or equal to 0.");
 
-    int count = 0;
-    SourceRecord record;
     log.trace("drain() - Attempting to draining {} record(s).", this.batchSize);
-    while (count <= this.batchSize && null != (record = this.poll())) {
-      records.add(record);
-      count++;
-    }
+    final int count = drainTo(records);
 
     if (count == 0 && emptyWaitMs > 0) {
       log.trace("drain() - Found no records, sleeping {} ms.", emptyWaitMs);
@@ -172,4 +629,63 @@ class SourceRecordDequeImpl extends ConcurrentLinkedDeque<SourceRecord> implemen
 
     return count > 0;
   }
+
+  /**
+   * Method moves up to the batch size worth of records to the supplied list. When batchSizeBytes is
+   * set the batch also stops before the record that would exceed it, but always contains at least
+   * one record. Producers waiting on capacity are signalled once for the whole batch rather than
+   * once per record.
+   *
+   * @param records List to append the records to.
+   * @return number of records that were added to the list.
+   */
+  private int drainTo(List<SourceRecord> records) {
+    final int start = records.size();
+    int count = 0;
+    long bytes = 0;
+    if (this.trackBytes) {
+      SourceRecord next;
+      while (count < this.batchSize && null != (next = this.records.peek())) {
+        final long nextBytes = sizeOf(next);
+        if (count > 0 && bytes + nextBytes > this.batchSizeBytes) {
+          break;
+        }
+        final SourceRecord record = this.records.poll();
+        if (null == record) {
+          break;
+        }
+        records.add(record);
+        bytes += record == next ? nextBytes : sizeOf(record);
+        count++;
+      }
+    } else if (this.records instanceof SourceRecordRingBuffer) {
+      count = ((SourceRecordRingBuffer) this.records).drainTo(records, this.batchSize);
+    } else {
+      SourceRecord record;
+      while (count < this.batchSize && null != (record = this.records.poll())) {
+        records.add(record);
+        count++;
+      }
+    }
+    recordsRemoved(count, bytes);
+    if (null != this.metrics && count > 0) {
+      this.metrics.recordsRemoved(records, start);
+      this.metrics.batchDrained(count);
+    }
+    return count;
+  }
+
+  @Override
+  public void close() {
+    if (null != this.metrics) {
+      this.metrics.close();
+    }
+    if (this.records instanceof Closeable) {
+      try {
+        ((Closeable) this.records).close();
+      } catch (IOException ex) {
+        log.warn("close() - Exception thrown while closing record store.", ex);
+      }
+    }
+  }
 }
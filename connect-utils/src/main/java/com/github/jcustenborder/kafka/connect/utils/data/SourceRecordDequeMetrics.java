@@ -0,0 +1,185 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.common.metrics.stats.Rate;
+import org.apache.kafka.common.metrics.stats.WindowedCount;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Metrics for a SourceRecordDeque registered with a Kafka {@link Metrics} instance. Adding a
+ * JmxReporter to the Metrics instance exposes them over JMX.
+ * <p>
+ * The time from enqueue to drain is sampled. One record at a time is traced through the deque, and
+ * the next record added after it has been removed becomes the new trace. This keeps the cost per
+ * record to a reference comparison. Stores that hand back a copy of a record, such as the spilling
+ * store, cannot be matched by reference, so the trace also counts down the records ahead of it and
+ * is complete once that many records have been removed.
+ */
+class SourceRecordDequeMetrics implements AutoCloseable {
+  static final String GROUP = "source-record-deque";
+  private static final int MAXIMUM_HISTOGRAM_BUCKETS = 1000;
+
+  static class Trace {
+    final SourceRecord record;
+    final long enqueuedNanos;
+    final AtomicInteger remaining;
+
+    Trace(SourceRecord record, long enqueuedNanos, int position) {
+      this.record = record;
+      this.enqueuedNanos = enqueuedNanos;
+      this.remaining = new AtomicInteger(position);
+    }
+  }
+
+  private final Metrics metrics;
+  private final Map<String, String> tags;
+  private final Time time;
+  private final boolean matchByPosition;
+  private final List<MetricName> metricNames = new ArrayList<>();
+  private final List<String> sensorNames = new ArrayList<>();
+  private final AtomicReference<Trace> trace = new AtomicReference<>();
+  private final Sensor enqueued;
+  private final Sensor blocked;
+  private final Sensor batches;
+  private final Sensor drainLatency;
+
+  /**
+   * @param matchByPosition true if the store can hand back a copy of a record instead of the
+   *                        record that was added.
+   */
+  SourceRecordDequeMetrics(Metrics metrics, Map<String, String> tags, Time time, SourceRecordDequeImpl deque, int batchSize, boolean matchByPosition) {
+    this.metrics = metrics;
+    this.tags = ImmutableMap.copyOf(tags);
+    this.time = time;
+    this.matchByPosition = matchByPosition;
+
+    gauge("depth", "The number of records in the deque.", (config, now) -> deque.size());
+    gauge("depth-bytes", "The estimated size in bytes of the records in the deque. Only tracked when a byte limit is configured.", (config, now) -> deque.bytes());
+
+    this.enqueued = sensor("enqueue");
+    this.enqueued.add(name("enqueue-rate", "The number of records added per second."), new Rate());
+    this.enqueued.add(name("enqueue-total", "The total number of records added."), new CumulativeSum());
+
+    this.blocked = sensor("producer-blocked");
+    this.blocked.add(name("producer-blocked-ratio", "The fraction of time producers spent waiting for capacity or rate limits."), new Rate(TimeUnit.MILLISECONDS));
+    this.blocked.add(name("producer-blocked-time-ms-total", "The total time in milliseconds producers spent waiting for capacity or rate limits."), new CumulativeSum());
+    this.blocked.add(name("producer-blocked-total", "The number of times a producer had to wait for capacity or rate limits."), new CumulativeCount());
+
+    this.batches = sensor("batch");
+    this.batches.add(name("batch-rate", "The number of batches drained per second."), new Rate(new WindowedCount()));
+    this.batches.add(name("batch-size-avg", "The average number of records per batch."), new Avg());
+    this.batches.add(name("batch-size-max", "The maximum number of records per batch."), new Max());
+    final int buckets = Math.min(batchSize, MAXIMUM_HISTOGRAM_BUCKETS);
+    this.batches.add(
+        new Percentiles(
+            4 * buckets,
+            batchSize,
+            Percentiles.BucketSizing.LINEAR,
+            new Percentile(name("batch-size-p50", "The median number of records per batch."), 50),
+            new Percentile(name("batch-size-p95", "The 95th percentile of records per batch."), 95),
+            new Percentile(name("batch-size-p99", "The 99th percentile of records per batch."), 99)
+        )
+    );
+
+    this.drainLatency = sensor("drain-latency");
+    this.drainLatency.add(name("drain-latency-avg-ms", "The average time in milliseconds between a record being added and drained."), new Avg());
+    this.drainLatency.add(name("drain-latency-max-ms", "The maximum time in milliseconds between a record being added and drained."), new Max());
+  }
+
+  private MetricName name(String name, String description) {
+    return this.metrics.metricName(name, GROUP, description, this.tags);
+  }
+
+  private void gauge(String name, String description, Gauge<?> gauge) {
+    final MetricName metricName = name(name, description);
+    this.metrics.addMetric(metricName, gauge);
+    this.metricNames.add(metricName);
+  }
+
+  private Sensor sensor(String name) {
+    final String sensorName = String.format("%s.%s%s", GROUP, name, this.tags);
+    this.sensorNames.add(sensorName);
+    return this.metrics.sensor(sensorName);
+  }
+
+  /**
+   * @param record   first record that was added.
+   * @param count    number of records that were added.
+   * @param position number of records in the deque up to and including record.
+   */
+  void recordsAdded(SourceRecord record, int count, int position) {
+    this.enqueued.record(count);
+    if (null != record && null == this.trace.get()) {
+      this.trace.compareAndSet(null, new Trace(record, this.time.nanoseconds(), Math.max(1, position)));
+    }
+  }
+
+  void recordRemoved(SourceRecord record) {
+    final Trace trace = this.trace.get();
+    if (null == trace) {
+      return;
+    }
+    final boolean drained = trace.record == record ||
+        (this.matchByPosition && trace.remaining.decrementAndGet() <= 0);
+    if (drained && this.trace.compareAndSet(trace, null)) {
+      final long elapsed = this.time.nanoseconds() - trace.enqueuedNanos;
+      this.drainLatency.record((double) elapsed / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
+  void recordsRemoved(List<SourceRecord> records, int fromIndex) {
+    if (null == this.trace.get()) {
+      return;
+    }
+    for (int i = fromIndex; i < records.size(); i++) {
+      recordRemoved(records.get(i));
+    }
+  }
+
+  void batchDrained(int count) {
+    this.batches.record(count);
+  }
+
+  void producerBlocked(long blockedMs) {
+    this.blocked.record(blockedMs);
+  }
+
+  @Override
+  public void close() {
+    this.sensorNames.forEach(this.metrics::removeSensor);
+    this.metricNames.forEach(this.metrics::removeMetric);
+  }
+}
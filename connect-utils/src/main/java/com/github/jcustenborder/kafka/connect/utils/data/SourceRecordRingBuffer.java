@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, array backed, multi-producer single-consumer queue. Producers claim a slot by advancing
+ * the producer index with a compare and set, then publish the record into the preallocated slot.
+ * The single consumer reads slots in order and releases them by advancing the consumer index.
+ */
+class SourceRecordRingBuffer extends AbstractFifoRecordDeque {
+  static final int MAXIMUM_CAPACITY = 1 << 30;
+  private final AtomicReferenceArray<SourceRecord> buffer;
+  private final int capacity;
+  private final int mask;
+  private final AtomicLong producerIndex = new AtomicLong();
+  private final AtomicLong consumerIndex = new AtomicLong();
+
+  SourceRecordRingBuffer(int capacity) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be greater than zero.");
+    Preconditions.checkArgument(
+        capacity <= MAXIMUM_CAPACITY,
+        "capacity must be less than or equal to %s.",
+        MAXIMUM_CAPACITY
+    );
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.buffer = new AtomicReferenceArray<>(this.capacity);
+  }
+
+  int capacity() {
+    return this.capacity;
+  }
+
+  @Override
+  public boolean offer(SourceRecord record) {
+    Preconditions.checkNotNull(record, "record cannot be null.");
+    long index;
+    do {
+      index = this.producerIndex.get();
+      if (index - this.consumerIndex.get() >= this.capacity) {
+        return false;
+      }
+    } while (!this.producerIndex.compareAndSet(index, index + 1));
+    this.buffer.lazySet(offset(index), record);
+    return true;
+  }
+
+  /**
+   * Method claims as many slots as are free for the records with a single compare and set, then
+   * publishes the records into them.
+   */
+  @Override
+  int offerBatch(SourceRecord[] records, int from, int to) {
+    long index;
+    int count;
+    do {
+      index = this.producerIndex.get();
+      final long free = this.capacity - (index - this.consumerIndex.get());
+      if (free <= 0) {
+        return 0;
+      }
+      count = (int) Math.min(free, to - from);
+    } while (!this.producerIndex.compareAndSet(index, index + count));
+    for (int i = 0; i < count; i++) {
+      this.buffer.lazySet(offset(index + i), records[from + i]);
+    }
+    return count;
+  }
+
+  @Override
+  public SourceRecord poll() {
+    final long index = this.consumerIndex.get();
+    final SourceRecord record = await(index);
+    if (null == record) {
+      return null;
+    }
+    this.buffer.lazySet(offset(index), null);
+    this.consumerIndex.lazySet(index + 1);
+    return record;
+  }
+
+  @Override
+  public SourceRecord peek() {
+    return await(this.consumerIndex.get());
+  }
+
+  /**
+   * Method drains up to limit records in a single pass over the buffer. The consumer index is
+   * published once after all of the slots have been read.
+   *
+   * @param records collection to add the records to.
+   * @param limit   maximum number of records to drain.
+   * @return number of records that were drained.
+   */
+  int drainTo(Collection<? super SourceRecord> records, int limit) {
+    final long start = this.consumerIndex.get();
+    long index = start;
+    final long end = start + limit;
+    SourceRecord record;
+    while (index < end && null != (record = await(index))) {
+      records.add(record);
+      this.buffer.lazySet(offset(index), null);
+      index++;
+    }
+    this.consumerIndex.lazySet(index);
+    return (int) (index - start);
+  }
+
+  /**
+   * Method reads the slot at the index. A producer can claim a slot before it has stored the record,
+   * so when the slot is empty but has been claimed the consumer spins until it is published.
+   */
+  private SourceRecord await(long index) {
+    final int offset = offset(index);
+    SourceRecord record = this.buffer.get(offset);
+    if (null == record) {
+      if (index >= this.producerIndex.get()) {
+        return null;
+      }
+      do {
+        Thread.onSpinWait();
+        record = this.buffer.get(offset);
+      } while (null == record);
+    }
+    return record;
+  }
+
+  private int offset(long index) {
+    return (int) (index & this.mask);
+  }
+
+  @Override
+  public int size() {
+    final long size = this.producerIndex.get() - this.consumerIndex.get();
+    return (int) Math.max(0, Math.min(size, this.capacity));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.producerIndex.get() == this.consumerIndex.get();
+  }
+
+  @Override
+  public Iterator<SourceRecord> iterator() {
+    return new AbstractIterator<SourceRecord>() {
+      long index = consumerIndex.get();
+      final long end = producerIndex.get();
+
+      @Override
+      protected SourceRecord computeNext() {
+        while (this.index < this.end) {
+          final SourceRecord record = buffer.get(offset(this.index++));
+          if (null != record) {
+            return record;
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  @Override
+  public SourceRecord peekLast() {
+    final long index = this.producerIndex.get() - 1;
+    return index < this.consumerIndex.get() ? null : this.buffer.get(offset(index));
+  }
+
+  @Override
+  public SourceRecord getLast() {
+    final SourceRecord result = peekLast();
+    if (null == result) {
+      throw new NoSuchElementException();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.IOException;
+
+/**
+ * Converts records to and from bytes so they can be spilled to disk by a SourceRecordDeque.
+ */
+public interface SourceRecordSerializer {
+  /**
+   * Method is used to convert a record to bytes.
+   *
+   * @param record record to serialize.
+   * @return serialized record.
+   * @throws IOException if the record could not be serialized.
+   */
+  byte[] serialize(SourceRecord record) throws IOException;
+
+  /**
+   * Method is used to convert bytes returned by serialize back to a record.
+   *
+   * @param buffer serialized record.
+   * @return record
+   * @throws IOException if the record could not be deserialized.
+   */
+  SourceRecord deserialize(byte[] buffer) throws IOException;
+}
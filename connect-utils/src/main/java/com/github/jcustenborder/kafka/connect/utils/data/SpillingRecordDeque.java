@@ -0,0 +1,340 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-producer single-consumer store that keeps up to spillThreshold records, and at most
+ * spillThresholdBytes as measured by the size estimator, in memory and appends the records past that
+ * watermark to segment files in the spill directory. Once records
+ * have been spilled, new records go to disk until the consumer has read all of them back, which
+ * keeps the store in FIFO order. Each record is written as a length prefixed frame using
+ * positional FileChannel I/O. A segment is deleted once the consumer has read all of its records.
+ * <p>
+ * Records read back from disk are copies of the records that were added. The frame carries the
+ * size of the original record so sizeOf() reports the same size for the copy, which keeps the byte
+ * accounting of SourceRecordDequeImpl in balance.
+ * <p>
+ * Spilled records are not durable. Segments are opened with DELETE_ON_CLOSE so they are removed
+ * when the store is closed, or by the operating system if the process dies, and are never read
+ * back after a restart.
+ */
+class SpillingRecordDeque extends AbstractFifoRecordDeque implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(SpillingRecordDeque.class);
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  static class Segment {
+    final Path path;
+    final FileChannel channel;
+    long writePosition;
+    long readPosition;
+
+    Segment(Path path) throws IOException {
+      this.path = path;
+      this.channel = FileChannel.open(
+          path,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE
+      );
+    }
+
+    boolean exhausted() {
+      return this.readPosition >= this.writePosition;
+    }
+  }
+
+  static class Unspilled {
+    final SourceRecord record;
+    final long bytes;
+
+    Unspilled(SourceRecord record, long bytes) {
+      this.record = record;
+      this.bytes = bytes;
+    }
+  }
+
+  private final ConcurrentLinkedQueue<SourceRecord> memory = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger memorySize = new AtomicInteger();
+  private final AtomicInteger spilledSize = new AtomicInteger();
+  private final AtomicLong memoryBytes = new AtomicLong();
+  private final Object lock = new Object();
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private final File directory;
+  private final int spillThreshold;
+  private final long spillThresholdBytes;
+  private final long segmentBytes;
+  private final SourceRecordSerializer serializer;
+  private final RecordSizeEstimator sizeEstimator;
+  private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+  private SourceRecord next;
+  private volatile Unspilled unspilled;
+
+  SpillingRecordDeque(File directory, int spillThreshold, long segmentBytes, SourceRecordSerializer serializer) {
+    this(directory, spillThreshold, Long.MAX_VALUE, segmentBytes, serializer, null);
+  }
+
+  /**
+   * @param spillThresholdBytes bytes to hold in memory before spilling. Requires a sizeEstimator
+   *                            unless it is Long.MAX_VALUE.
+   * @param sizeEstimator estimator used to weigh records, or null if sizes are not tracked.
+   */
+  SpillingRecordDeque(File directory, int spillThreshold, long spillThresholdBytes, long segmentBytes, SourceRecordSerializer serializer, RecordSizeEstimator sizeEstimator) {
+    Preconditions.checkNotNull(directory, "directory cannot be null.");
+    Preconditions.checkArgument(directory.isDirectory(), "directory '%s' must exist and be a directory.", directory);
+    Preconditions.checkArgument(spillThreshold > 0, "spillThreshold must be greater than zero.");
+    Preconditions.checkArgument(spillThresholdBytes > 0, "spillThresholdBytes must be greater than zero.");
+    Preconditions.checkArgument(
+        spillThresholdBytes == Long.MAX_VALUE || null != sizeEstimator,
+        "sizeEstimator must be set when spillThresholdBytes is set."
+    );
+    Preconditions.checkArgument(segmentBytes > 0, "segmentBytes must be greater than zero.");
+    Preconditions.checkNotNull(serializer, "serializer cannot be null.");
+    this.directory = directory;
+    this.spillThreshold = spillThreshold;
+    this.spillThresholdBytes = spillThresholdBytes;
+    this.segmentBytes = segmentBytes;
+    this.serializer = serializer;
+    this.sizeEstimator = sizeEstimator;
+  }
+
+  /**
+   * Method returns the size of a record. The most recent record read back from disk reports the
+   * size its original had when it was spilled.
+   */
+  long sizeOf(SourceRecord record) {
+    final Unspilled unspilled = this.unspilled;
+    if (null != unspilled && unspilled.record == record) {
+      return unspilled.bytes;
+    }
+    return null == this.sizeEstimator ? 0L : this.sizeEstimator.sizeOf(record);
+  }
+
+  @Override
+  public boolean offer(SourceRecord record) {
+    Preconditions.checkNotNull(record, "record cannot be null.");
+    if (this.spilledSize.get() == 0 && this.memorySize.get() < this.spillThreshold &&
+        this.memoryBytes.get() < this.spillThresholdBytes) {
+      if (this.spillThresholdBytes < Long.MAX_VALUE) {
+        this.memoryBytes.addAndGet(this.sizeEstimator.sizeOf(record));
+      }
+      this.memory.offer(record);
+      this.memorySize.incrementAndGet();
+    } else {
+      spill(record);
+    }
+    return true;
+  }
+
+  private void spill(SourceRecord record) {
+    final byte[] data;
+    try {
+      data = this.serializer.serialize(record);
+    } catch (IOException ex) {
+      throw new ConnectException("Exception thrown while serializing record.", ex);
+    }
+    final ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + data.length);
+    frame.putInt(data.length);
+    frame.putLong(null == this.sizeEstimator ? 0L : this.sizeEstimator.sizeOf(record));
+    frame.put(data);
+    frame.flip();
+
+    synchronized (this.lock) {
+      try {
+        Segment segment = this.segments.peekLast();
+        if (null == segment || segment.writePosition >= this.segmentBytes) {
+          segment = new Segment(Files.createTempFile(this.directory.toPath(), "source-record-deque-", ".spill"));
+          log.debug("spill() - Created segment {}.", segment.path);
+          this.segments.addLast(segment);
+        }
+        while (frame.hasRemaining()) {
+          segment.writePosition += segment.channel.write(frame, segment.writePosition);
+        }
+      } catch (IOException ex) {
+        throw new ConnectException("Exception thrown while spilling record to disk.", ex);
+      }
+      this.spilledSize.incrementAndGet();
+    }
+  }
+
+  /**
+   * Method reads the oldest spilled record. Segments are read through a buffer so consecutive
+   * records do not each cost a read from the file.
+   */
+  private SourceRecord unspill() {
+    final byte[] data;
+    final long bytes;
+    synchronized (this.lock) {
+      try {
+        final ByteBuffer header = fill(Integer.BYTES + Long.BYTES);
+        final int length = header.getInt();
+        bytes = header.getLong();
+        data = new byte[length];
+        fill(length).get(data);
+      } catch (IOException ex) {
+        throw new ConnectException("Exception thrown while reading spilled record.", ex);
+      }
+      final Segment segment = this.segments.peekFirst();
+      if (!this.readBuffer.hasRemaining() && segment.exhausted()) {
+        this.segments.pollFirst();
+        close(segment);
+      }
+    }
+    try {
+      final SourceRecord result = this.serializer.deserialize(data);
+      this.unspilled = new Unspilled(result, bytes);
+      return result;
+    } catch (IOException ex) {
+      throw new ConnectException("Exception thrown while deserializing spilled record.", ex);
+    }
+  }
+
+  private ByteBuffer fill(int bytes) throws IOException {
+    if (this.readBuffer.remaining() >= bytes) {
+      return this.readBuffer;
+    }
+    if (this.readBuffer.capacity() < bytes) {
+      final ByteBuffer buffer = ByteBuffer.allocate(bytes);
+      buffer.put(this.readBuffer);
+      this.readBuffer = buffer;
+    } else {
+      this.readBuffer.compact();
+    }
+    final Segment segment = this.segments.peekFirst();
+    while (this.readBuffer.position() < bytes) {
+      final int read = segment.channel.read(this.readBuffer, segment.readPosition);
+      if (read < 0) {
+        throw new EOFException(String.format("Unexpected end of segment %s.", segment.path));
+      }
+      segment.readPosition += read;
+    }
+    this.readBuffer.flip();
+    return this.readBuffer;
+  }
+
+  @Override
+  public SourceRecord poll() {
+    SourceRecord result = this.memory.poll();
+    if (null != result) {
+      this.memorySize.decrementAndGet();
+      if (this.spillThresholdBytes < Long.MAX_VALUE) {
+        this.memoryBytes.addAndGet(-this.sizeEstimator.sizeOf(result));
+      }
+      return result;
+    }
+    if (null == this.next) {
+      if (this.spilledSize.get() == 0) {
+        return null;
+      }
+      this.next = unspill();
+    }
+    result = this.next;
+    this.next = null;
+    this.spilledSize.decrementAndGet();
+    return result;
+  }
+
+  @Override
+  public SourceRecord peek() {
+    final SourceRecord result = this.memory.peek();
+    if (null != result) {
+      return result;
+    }
+    if (null == this.next && this.spilledSize.get() > 0) {
+      this.next = unspill();
+    }
+    return this.next;
+  }
+
+  @Override
+  public int size() {
+    return Math.max(0, this.memorySize.get()) + this.spilledSize.get();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return estimated size in bytes of the records held in memory. Only tracked when
+   *     spillThresholdBytes is set.
+   */
+  long memoryBytes() {
+    return Math.max(0L, this.memoryBytes.get());
+  }
+
+  int spilled() {
+    return this.spilledSize.get();
+  }
+
+  int segments() {
+    synchronized (this.lock) {
+      return this.segments.size();
+    }
+  }
+
+  /**
+   * Iterator over the records held in memory. Records that have been spilled to disk are not
+   * returned.
+   */
+  @Override
+  public Iterator<SourceRecord> iterator() {
+    return Iterators.unmodifiableIterator(this.memory.iterator());
+  }
+
+  private static void close(Segment segment) {
+    try {
+      segment.channel.close();
+    } catch (IOException ex) {
+      log.warn("close() - Exception thrown while closing {}.", segment.path, ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (this.lock) {
+      Segment segment;
+      while (null != (segment = this.segments.pollFirst())) {
+        close(segment);
+      }
+      this.readBuffer.clear().flip();
+      this.spilledSize.set(0);
+      this.next = null;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.util.List;
+
+/**
+ * Dotted path to a field of a nested Struct, for example "address.city". The path is compiled
+ * against each schema it is used with into the Field at every level, so reading or writing the
+ * field does not look fields up by name. Compiled paths are cached by the identity of the root
+ * schema, which lets a transformation keep one StructPath and use it as schemas change.
+ */
+public class StructPath {
+  static final int MAXIMUM_SCHEMAS = 256;
+  private static final Field[] MISSING = new Field[0];
+
+  static final class Compiled {
+    final Schema schema;
+    final Field[] fields;
+
+    Compiled(Schema schema, Field[] fields) {
+      this.schema = schema;
+      this.fields = fields;
+    }
+  }
+
+  private final String path;
+  private final String[] names;
+  private final Cache<Schema, Field[]> compiled = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_SCHEMAS)
+      .build();
+  private volatile Compiled last;
+
+  StructPath(String path) {
+    Preconditions.checkNotNull(path, "path cannot be null.");
+    final List<String> names = Splitter.on('.').splitToList(path);
+    for (String name : names) {
+      Preconditions.checkArgument(!name.isEmpty(), "path '%s' cannot contain empty field names.", path);
+    }
+    this.path = path;
+    this.names = names.toArray(new String[0]);
+  }
+
+  /**
+   * Method creates a StructPath from a dotted path.
+   *
+   * @param path path to the field. For example "address.city"
+   * @return StructPath
+   */
+  public static StructPath of(String path) {
+    return new StructPath(path);
+  }
+
+  public String path() {
+    return this.path;
+  }
+
+  Field[] fields(Schema schema) {
+    final Compiled last = this.last;
+    if (null != last && last.schema == schema) {
+      return last.fields;
+    }
+    Field[] result = this.compiled.getIfPresent(schema);
+    if (null == result) {
+      result = compile(schema);
+      this.compiled.put(schema, result);
+    }
+    this.last = new Compiled(schema, result);
+    return result;
+  }
+
+  private Field[] compile(Schema schema) {
+    final Field[] result = new Field[this.names.length];
+    Schema current = schema;
+    for (int i = 0; i < this.names.length; i++) {
+      if (Schema.Type.STRUCT != current.type()) {
+        return MISSING;
+      }
+      final Field field = current.field(this.names[i]);
+      if (null == field) {
+        return MISSING;
+      }
+      result[i] = field;
+      current = field.schema();
+    }
+    return result;
+  }
+
+  /**
+   * Method checks if the path exists in the schema.
+   *
+   * @param schema schema to check.
+   * @return true if the schema has a field at the path.
+   */
+  public boolean matches(Schema schema) {
+    Preconditions.checkNotNull(schema, "schema cannot be null.");
+    return MISSING != fields(schema);
+  }
+
+  /**
+   * Method returns the field at the path.
+   *
+   * @param schema schema to look in.
+   * @return field, or null if the schema does not have a field at the path.
+   */
+  public Field field(Schema schema) {
+    Preconditions.checkNotNull(schema, "schema cannot be null.");
+    final Field[] fields = fields(schema);
+    return MISSING == fields ? null : fields[fields.length - 1];
+  }
+
+  private Field[] required(Struct struct) {
+    Preconditions.checkNotNull(struct, "struct cannot be null.");
+    final Field[] fields = fields(struct.schema());
+    if (MISSING == fields) {
+      throw new DataException(
+          String.format("Schema '%s' does not have a field at path '%s'.", struct.schema().name(), this.path)
+      );
+    }
+    return fields;
+  }
+
+  /**
+   * Method returns the value at the path.
+   *
+   * @param struct struct to read from.
+   * @return value, or null if the value or one of the structs along the path is null.
+   * @throws DataException if the schema of the struct does not have a field at the path.
+   */
+  public Object get(Struct struct) {
+    final Field[] fields = required(struct);
+    Struct current = struct;
+    for (int i = 0; i < fields.length - 1; i++) {
+      current = (Struct) current.get(fields[i]);
+      if (null == current) {
+        return null;
+      }
+    }
+    return current.get(fields[fields.length - 1]);
+  }
+
+  /**
+   * Method sets the value at the path.
+   *
+   * @param struct struct to write to.
+   * @param value  value to set.
+   * @return the struct that was passed in.
+   * @throws DataException if the schema of the struct does not have a field at the path, or one of
+   *                       the structs along the path is null.
+   */
+  public Struct put(Struct struct, Object value) {
+    final Field[] fields = required(struct);
+    Struct current = struct;
+    for (int i = 0; i < fields.length - 1; i++) {
+      current = (Struct) current.get(fields[i]);
+      if (null == current) {
+        throw new DataException(
+            String.format("Cannot set '%s' because '%s' is null.", this.path, fields[i].name())
+        );
+      }
+    }
+    current.put(fields[fields.length - 1], value);
+    return struct;
+  }
+
+  @Override
+  public String toString() {
+    return this.path;
+  }
+}
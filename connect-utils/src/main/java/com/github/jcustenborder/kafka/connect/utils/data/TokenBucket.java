@@ -0,0 +1,202 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import org.apache.kafka.common.utils.Time;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket used to limit the rate records or bytes are written to a SourceRecordDeque. Tokens
+ * are added at the configured rate up to a burst of maximumBurstSeconds worth of tokens. The bucket
+ * never sleeps while holding its lock. tryAcquire() returns immediately and acquire() reserves the
+ * permits, then sleeps for the time it takes for the bucket to pay them back. The rate can be
+ * changed while the bucket is in use.
+ */
+public class TokenBucket {
+  private final Time time;
+  private final double maximumBurstSeconds;
+  private final AtomicLong throttledNanos = new AtomicLong();
+  private final AtomicLong throttledCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+  private double permitsPerSecond;
+  private double maximumPermits;
+  private double storedPermits;
+  private long lastRefillNanos;
+
+  TokenBucket(Time time, double permitsPerSecond, double maximumBurstSeconds) {
+    Preconditions.checkNotNull(time, "time cannot be null.");
+    Preconditions.checkArgument(maximumBurstSeconds > 0, "maximumBurstSeconds must be greater than zero.");
+    this.time = time;
+    this.maximumBurstSeconds = maximumBurstSeconds;
+    this.lastRefillNanos = time.nanoseconds();
+    rate(permitsPerSecond);
+    this.storedPermits = this.maximumPermits;
+  }
+
+  /**
+   * Method creates a TokenBucket that allows bursts of up to one second worth of permits.
+   *
+   * @param permitsPerSecond rate permits are added to the bucket.
+   * @return TokenBucket
+   */
+  public static TokenBucket of(double permitsPerSecond) {
+    return of(permitsPerSecond, 1D);
+  }
+
+  /**
+   * Method creates a TokenBucket.
+   *
+   * @param permitsPerSecond    rate permits are added to the bucket.
+   * @param maximumBurstSeconds number of seconds worth of permits the bucket can hold.
+   * @return TokenBucket
+   */
+  public static TokenBucket of(double permitsPerSecond, double maximumBurstSeconds) {
+    return new TokenBucket(Time.SYSTEM, permitsPerSecond, maximumBurstSeconds);
+  }
+
+  private void refill(long now) {
+    final long elapsed = now - this.lastRefillNanos;
+    if (elapsed > 0) {
+      this.storedPermits = Math.min(
+          this.maximumPermits,
+          this.storedPermits + elapsed * this.permitsPerSecond / TimeUnit.SECONDS.toNanos(1)
+      );
+      this.lastRefillNanos = now;
+    }
+  }
+
+  /**
+   * Method is used to change the rate permits are added to the bucket.
+   *
+   * @param permitsPerSecond rate permits are added to the bucket.
+   */
+  public synchronized void rate(double permitsPerSecond) {
+    Preconditions.checkArgument(
+        permitsPerSecond > 0 && !Double.isNaN(permitsPerSecond),
+        "permitsPerSecond must be greater than zero."
+    );
+    refill(this.time.nanoseconds());
+    this.permitsPerSecond = permitsPerSecond;
+    this.maximumPermits = Math.max(1D, permitsPerSecond * this.maximumBurstSeconds);
+    this.storedPermits = Math.min(this.storedPermits, this.maximumPermits);
+  }
+
+  public synchronized double rate() {
+    return this.permitsPerSecond;
+  }
+
+  /**
+   * Method takes permits from the bucket if they are available without waiting. Requests larger than
+   * the burst size are allowed once the bucket is full, and leave the bucket in debt.
+   *
+   * @param permits number of permits to take.
+   * @return true if the permits were taken, false if the caller should try again later.
+   */
+  public boolean tryAcquire(long permits) {
+    Preconditions.checkArgument(permits >= 0, "permits must be greater than or equal to zero.");
+    synchronized (this) {
+      refill(this.time.nanoseconds());
+      if (this.storedPermits >= Math.min(permits, this.maximumPermits)) {
+        this.storedPermits -= permits;
+        return true;
+      }
+    }
+    this.rejectedCount.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Method gives back permits taken with tryAcquire() that ended up not being used. The bucket
+   * never holds more than the burst size.
+   *
+   * @param permits number of permits to give back.
+   */
+  public synchronized void release(long permits) {
+    Preconditions.checkArgument(permits >= 0, "permits must be greater than or equal to zero.");
+    refill(this.time.nanoseconds());
+    this.storedPermits = Math.min(this.maximumPermits, this.storedPermits + permits);
+  }
+
+  /**
+   * Method takes permits from the bucket, sleeping until the bucket has paid them back if there
+   * were not enough available.
+   *
+   * @param permits number of permits to take.
+   * @return time in milliseconds the caller was throttled for.
+   */
+  public long acquire(long permits) {
+    Preconditions.checkArgument(permits >= 0, "permits must be greater than or equal to zero.");
+    final long waitNanos;
+    synchronized (this) {
+      refill(this.time.nanoseconds());
+      this.storedPermits -= permits;
+      waitNanos = this.storedPermits >= 0 ?
+          0L :
+          (long) Math.ceil(-this.storedPermits * TimeUnit.SECONDS.toNanos(1) / this.permitsPerSecond);
+    }
+    if (waitNanos <= 0) {
+      return 0L;
+    }
+    final long nanosPerMs = TimeUnit.MILLISECONDS.toNanos(1);
+    final long waitMs = (waitNanos + nanosPerMs - 1) / nanosPerMs;
+    this.throttledCount.incrementAndGet();
+    this.throttledNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(waitMs));
+    this.time.sleep(waitMs);
+    return waitMs;
+  }
+
+  /**
+   * Total time in milliseconds callers of acquire() have been throttled for.
+   *
+   * @return milliseconds
+   */
+  public long throttledTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(this.throttledNanos.get());
+  }
+
+  /**
+   * Number of calls to acquire() that had to wait for permits.
+   *
+   * @return count
+   */
+  public long throttledCount() {
+    return this.throttledCount.get();
+  }
+
+  /**
+   * Number of calls to tryAcquire() that were rejected.
+   *
+   * @return count
+   */
+  public long rejectedCount() {
+    return this.rejectedCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("permitsPerSecond", rate())
+        .add("maximumBurstSeconds", this.maximumBurstSeconds)
+        .add("throttledTimeMs", throttledTimeMs())
+        .add("throttledCount", throttledCount())
+        .add("rejectedCount", rejectedCount())
+        .toString();
+  }
+}
@@ -16,6 +16,10 @@
 package com.github.jcustenborder.kafka.connect.utils.transformation;
 
 import com.github.jcustenborder.kafka.connect.utils.data.SchemaHelper;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Decimal;
 import org.apache.kafka.connect.data.Schema;
@@ -113,69 +117,138 @@ public abstract class BaseKeyValueTransformation<R extends ConnectRecord<R>> imp
   }
 
   private static final Schema OPTIONAL_TIMESTAMP = Timestamp.builder().optional().build();
+  static final int MAXIMUM_OUTPUT_SCHEMAS = 256;
+
+  /**
+   * Output schemas keyed by the identity of the input schema. Statistics are recorded so a stream
+   * of schemas that is too diverse for the cache can be spotted.
+   */
+  private final Cache<Schema, Schema> outputSchemas = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_OUTPUT_SCHEMAS)
+      .recordStats()
+      .build();
+
+  /**
+   * Method builds the output schema for an input schema. Subclasses that derive the schema of their
+   * output from the input schema override this method and call outputSchema() from their process
+   * methods.
+   *
+   * @param inputSchema schema of the input.
+   * @return output schema. Cannot be null.
+   */
+  protected Schema buildOutputSchema(Schema inputSchema) {
+    throw new UnsupportedOperationException("buildOutputSchema(Schema) must be overridden to use outputSchema(Schema).");
+  }
 
+  /**
+   * Method returns the output schema for an input schema. buildOutputSchema() is only called the
+   * first time a schema instance is seen, so the same output schema instance is returned for
+   * every record with that input schema.
+   *
+   * @param inputSchema schema of the input.
+   * @return output schema.
+   */
+  protected Schema outputSchema(Schema inputSchema) {
+    Schema result = this.outputSchemas.getIfPresent(inputSchema);
+    if (null == result) {
+      result = buildOutputSchema(inputSchema);
+      Preconditions.checkState(null != result, "buildOutputSchema(Schema) cannot return null.");
+      this.outputSchemas.put(inputSchema, result);
+    }
+    return result;
+  }
+
+  /**
+   * Hit and miss counts for the output schema cache. A high miss count means the input schemas are
+   * not being reused, or there are more distinct schemas than the cache holds.
+   *
+   * @return cache statistics.
+   */
+  public CacheStats outputSchemaCacheStats() {
+    return this.outputSchemas.stats();
+  }
+
+  /**
+   * Flag to determine if apply() passes the schema and value of the record straight to
+   * process(R, Schema, Object) instead of wrapping them in a SchemaAndValue for
+   * process(R, SchemaAndValue). Subclasses that do not override process(R, SchemaAndValue) can
+   * return true to save an allocation per record.
+   *
+   * @return true to skip process(R, SchemaAndValue) in apply().
+   */
+  protected boolean useDirectProcess() {
+    return false;
+  }
 
   protected SchemaAndValue process(R record, SchemaAndValue input) {
-    final SchemaAndValue result;
+    return process(record, input.schema(), input.value());
+  }
 
-    if (null == input.schema() && null == input.value()) {
-      return new SchemaAndValue(
-          null,
-          null
-      );
+  /**
+   * Method dispatches the input to the process method for its type. A schema is inferred for
+   * values that do not have one.
+   *
+   * @param record record being transformed.
+   * @param inputSchema schema of the key or value. Can be null.
+   * @param input key or value. Can be null.
+   * @return result of the process method.
+   */
+  protected SchemaAndValue process(R record, Schema inputSchema, Object input) {
+    if (null == inputSchema && null == input) {
+      return SchemaAndValue.NULL;
     }
 
-    if (input.value() instanceof Map) {
+    if (input instanceof Map) {
       log.trace("process() - Processing as map");
-      result = processMap(record, (Map<String, Object>) input.value());
-      return result;
+      return processMap(record, (Map<String, Object>) input);
     }
 
-    if (null == input.schema()) {
+    if (null == inputSchema) {
       log.trace("process() - Determining schema");
-      final Schema schema = SchemaHelper.schema(input.value());
-      return process(record, new SchemaAndValue(schema, input.value()));
+      return process(record, SchemaHelper.schema(input), input);
     }
 
-    log.trace("process() - input.value() has as schema. schema = {}", input.schema());
-    if (Schema.Type.STRUCT == input.schema().type()) {
-      result = processStruct(record, input.schema(), (Struct) input.value());
-    } else if (Timestamp.LOGICAL_NAME.equals(input.schema().name())) {
-      result = processTimestamp(record, input.schema(), (Date) input.value());
-    } else if (org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(input.schema().name())) {
-      result = processDate(record, input.schema(), (Date) input.value());
-    } else if (Time.LOGICAL_NAME.equals(input.schema().name())) {
-      result = processTime(record, input.schema(), (Date) input.value());
-    } else if (Decimal.LOGICAL_NAME.equals(input.schema().name())) {
-      result = processDecimal(record, input.schema(), (BigDecimal) input.value());
-    } else if (Schema.Type.STRING == input.schema().type()) {
-      result = processString(record, input.schema(), (String) input.value());
-    } else if (Schema.Type.BYTES == input.schema().type()) {
-      result = processBytes(record, input.schema(), (byte[]) input.value());
-    } else if (Schema.Type.INT8 == input.schema().type()) {
-      result = processInt8(record, input.schema(), (byte) input.value());
-    } else if (Schema.Type.INT16 == input.schema().type()) {
-      result = processInt16(record, input.schema(), (short) input.value());
-    } else if (Schema.Type.INT32 == input.schema().type()) {
-      result = processInt32(record, input.schema(), (int) input.value());
-    } else if (Schema.Type.INT64 == input.schema().type()) {
-      result = processInt64(record, input.schema(), (long) input.value());
-    } else if (Schema.Type.FLOAT32 == input.schema().type()) {
-      result = processFloat32(record, input.schema(), (float) input.value());
-    } else if (Schema.Type.FLOAT64 == input.schema().type()) {
-      result = processFloat64(record, input.schema(), (double) input.value());
-    } else if (Schema.Type.ARRAY == input.schema().type()) {
-      result = processArray(record, input.schema(), (List<Object>) input.value());
-    } else if (Schema.Type.MAP == input.schema().type()) {
-      result = processMap(record, input.schema(), (Map<Object, Object>) input.value());
-    } else if (Schema.Type.BOOLEAN == input.schema().type()) {
-      result = processBoolean(record, input.schema(), (boolean) input.value());
+    log.trace("process() - input has as schema. schema = {}", inputSchema);
+    final SchemaAndValue result;
+    if (Schema.Type.STRUCT == inputSchema.type()) {
+      result = processStruct(record, inputSchema, (Struct) input);
+    } else if (Timestamp.LOGICAL_NAME.equals(inputSchema.name())) {
+      result = processTimestamp(record, inputSchema, (Date) input);
+    } else if (org.apache.kafka.connect.data.Date.LOGICAL_NAME.equals(inputSchema.name())) {
+      result = processDate(record, inputSchema, (Date) input);
+    } else if (Time.LOGICAL_NAME.equals(inputSchema.name())) {
+      result = processTime(record, inputSchema, (Date) input);
+    } else if (Decimal.LOGICAL_NAME.equals(inputSchema.name())) {
+      result = processDecimal(record, inputSchema, (BigDecimal) input);
+    } else if (Schema.Type.STRING == inputSchema.type()) {
+      result = processString(record, inputSchema, (String) input);
+    } else if (Schema.Type.BYTES == inputSchema.type()) {
+      result = processBytes(record, inputSchema, (byte[]) input);
+    } else if (Schema.Type.INT8 == inputSchema.type()) {
+      result = processInt8(record, inputSchema, (byte) input);
+    } else if (Schema.Type.INT16 == inputSchema.type()) {
+      result = processInt16(record, inputSchema, (short) input);
+    } else if (Schema.Type.INT32 == inputSchema.type()) {
+      result = processInt32(record, inputSchema, (int) input);
+    } else if (Schema.Type.INT64 == inputSchema.type()) {
+      result = processInt64(record, inputSchema, (long) input);
+    } else if (Schema.Type.FLOAT32 == inputSchema.type()) {
+      result = processFloat32(record, inputSchema, (float) input);
+    } else if (Schema.Type.FLOAT64 == inputSchema.type()) {
+      result = processFloat64(record, inputSchema, (double) input);
+    } else if (Schema.Type.ARRAY == inputSchema.type()) {
+      result = processArray(record, inputSchema, (List<Object>) input);
+    } else if (Schema.Type.MAP == inputSchema.type()) {
+      result = processMap(record, inputSchema, (Map<Object, Object>) input);
+    } else if (Schema.Type.BOOLEAN == inputSchema.type()) {
+      result = processBoolean(record, inputSchema, (boolean) input);
     } else {
       throw new UnsupportedOperationException(
           String.format(
               "Schema is not supported. type='%s' name='%s'",
-              input.schema().type(),
-              input.schema().name()
+              inputSchema.type(),
+              inputSchema.name()
           )
       );
     }
@@ -184,25 +257,31 @@ public abstract class BaseKeyValueTransformation<R extends ConnectRecord<R>> imp
   }
 
 
+  /**
+   * Method applies the transformation to the key or value of the record. If process() returns the
+   * same schema and value instances it was given, the original record is returned instead of a
+   * copy.
+   */
   @Override
   public R apply(R record) {
-    SchemaAndValue key = new SchemaAndValue(record.keySchema(), record.key());
-    SchemaAndValue value = new SchemaAndValue(record.valueSchema(), record.value());
-    final SchemaAndValue input = this.isKey ? key : value;
-    final SchemaAndValue result = process(record, input);
-    if (this.isKey) {
-      key = result;
-    } else {
-      value = result;
+    final Schema inputSchema = this.isKey ? record.keySchema() : record.valueSchema();
+    final Object inputValue = this.isKey ? record.key() : record.value();
+    final SchemaAndValue result = useDirectProcess() ?
+        process(record, inputSchema, inputValue) :
+        process(record, new SchemaAndValue(inputSchema, inputValue));
+
+    if (result.schema() == inputSchema && result.value() == inputValue) {
+      log.trace("apply() - Record was not changed.");
+      return record;
     }
 
     return record.newRecord(
         record.topic(),
         record.kafkaPartition(),
-        key.schema(),
-        key.value(),
-        value.schema(),
-        value.value(),
+        this.isKey ? result.schema() : record.keySchema(),
+        this.isKey ? result.value() : record.key(),
+        this.isKey ? record.valueSchema() : result.schema(),
+        this.isKey ? record.value() : result.value(),
         record.timestamp(),
         record.headers()
     );
@@ -0,0 +1,216 @@
+/**
+ * Copyright © 2017 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.transformation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transformation that runs several BaseKeyValueTransformation stages in one pass. The key and
+ * value are passed from stage to stage as SchemaAndValue and the record is only copied once at the
+ * end, or not at all if no stage changed it.
+ * <p>
+ * Each stage is passed the original record along with the current key or value. Stages that read
+ * other parts of the record will see them as they were before the chain ran. Stages that override
+ * apply() cannot be fused and are rejected.
+ * <p>
+ * A Connect worker creates the chain with the no-arg constructor. configure() then creates the
+ * stages listed in the stages setting and configures each one with its own prefixed settings:
+ * <pre>
+ * transforms=chain
+ * transforms.chain.type=com.github.jcustenborder.kafka.connect.utils.transformation.ChainedKeyValueTransformation
+ * transforms.chain.stages=com.example.First$Value,com.example.Second$Key
+ * transforms.chain.stages.0.field=name
+ * transforms.chain.stages.1.field=id
+ * </pre>
+ * Chains created with of() take stages that are already configured.
+ *
+ * @param <R> record type
+ */
+public class ChainedKeyValueTransformation<R extends ConnectRecord<R>> implements Transformation<R> {
+  private static final Logger log = LoggerFactory.getLogger(ChainedKeyValueTransformation.class);
+  private List<BaseKeyValueTransformation<R>> stages;
+
+  public ChainedKeyValueTransformation() {
+    this.stages = ImmutableList.of();
+  }
+
+  ChainedKeyValueTransformation(List<BaseKeyValueTransformation<R>> stages) {
+    Preconditions.checkNotNull(stages, "stages cannot be null.");
+    Preconditions.checkArgument(!stages.isEmpty(), "stages cannot be empty.");
+    for (BaseKeyValueTransformation<R> stage : stages) {
+      Preconditions.checkNotNull(stage, "stages cannot contain null.");
+      checkApply(stage);
+    }
+    this.stages = ImmutableList.copyOf(stages);
+  }
+
+  private static void checkApply(BaseKeyValueTransformation<?> stage) {
+    Preconditions.checkArgument(
+        !overridesApply(stage),
+        "%s overrides apply() and cannot be chained.",
+        stage.getClass().getName()
+    );
+  }
+
+  /**
+   * Method creates a transformation that runs the stages in order.
+   *
+   * @param stages configured transformations to run.
+   * @param <R>    record type
+   * @return transformation
+   */
+  public static <R extends ConnectRecord<R>> ChainedKeyValueTransformation<R> of(List<BaseKeyValueTransformation<R>> stages) {
+    return new ChainedKeyValueTransformation<>(stages);
+  }
+
+  @SafeVarargs
+  public static <R extends ConnectRecord<R>> ChainedKeyValueTransformation<R> of(BaseKeyValueTransformation<R>... stages) {
+    return of(Arrays.asList(stages));
+  }
+
+  static boolean overridesApply(BaseKeyValueTransformation<?> stage) {
+    try {
+      return BaseKeyValueTransformation.class !=
+          stage.getClass().getMethod("apply", ConnectRecord.class).getDeclaringClass();
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  public List<BaseKeyValueTransformation<R>> stages() {
+    return this.stages;
+  }
+
+  @Override
+  public R apply(R record) {
+    SchemaAndValue key = null;
+    SchemaAndValue value = null;
+
+    for (BaseKeyValueTransformation<R> stage : this.stages) {
+      if (stage.isKey) {
+        if (null == key) {
+          key = new SchemaAndValue(record.keySchema(), record.key());
+        }
+        key = stage.process(record, key);
+      } else {
+        if (null == value) {
+          value = new SchemaAndValue(record.valueSchema(), record.value());
+        }
+        value = stage.process(record, value);
+      }
+    }
+
+    final boolean keyChanged = changed(key, record.keySchema(), record.key());
+    final boolean valueChanged = changed(value, record.valueSchema(), record.value());
+    if (!keyChanged && !valueChanged) {
+      log.trace("apply() - Record was not changed.");
+      return record;
+    }
+
+    return record.newRecord(
+        record.topic(),
+        record.kafkaPartition(),
+        keyChanged ? key.schema() : record.keySchema(),
+        keyChanged ? key.value() : record.key(),
+        valueChanged ? value.schema() : record.valueSchema(),
+        valueChanged ? value.value() : record.value(),
+        record.timestamp(),
+        record.headers()
+    );
+  }
+
+  private static boolean changed(SchemaAndValue result, Schema schema, Object value) {
+    return null != result && (result.schema() != schema || result.value() != value);
+  }
+
+  @Override
+  public ConfigDef config() {
+    return ChainedKeyValueTransformationConfig.config();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void configure(Map<String, ?> settings) {
+    final ChainedKeyValueTransformationConfig config = new ChainedKeyValueTransformationConfig(settings);
+    if (config.stages.isEmpty()) {
+      throw new ConfigException(
+          ChainedKeyValueTransformationConfig.STAGES_CONF,
+          config.stages,
+          "At least one stage must be configured."
+      );
+    }
+    final List<BaseKeyValueTransformation<R>> stages = new ArrayList<>(config.stages.size());
+    try {
+      for (int i = 0; i < config.stages.size(); i++) {
+        final String className = config.stages.get(i);
+        final BaseKeyValueTransformation<R> stage;
+        try {
+          stage = Utils.newInstance(className, BaseKeyValueTransformation.class);
+        } catch (ClassNotFoundException | ClassCastException | KafkaException ex) {
+          throw new ConfigException(
+              ChainedKeyValueTransformationConfig.STAGES_CONF,
+              className,
+              "Could not create a BaseKeyValueTransformation: " + ex.getMessage()
+          );
+        }
+        if (overridesApply(stage)) {
+          throw new ConfigException(
+              ChainedKeyValueTransformationConfig.STAGES_CONF,
+              className,
+              "Overrides apply() and cannot be chained."
+          );
+        }
+        final String prefix = ChainedKeyValueTransformationConfig.stagePrefix(i);
+        log.trace("configure() - Configuring stage {} ({}) with settings starting with '{}'.", i, className, prefix);
+        stages.add(stage);
+        stage.configure(config.originalsWithPrefix(prefix));
+      }
+    } catch (RuntimeException ex) {
+      for (BaseKeyValueTransformation<R> stage : stages) {
+        stage.close();
+      }
+      throw ex;
+    }
+    close();
+    this.stages = ImmutableList.copyOf(stages);
+  }
+
+  /**
+   * Method closes every stage.
+   */
+  @Override
+  public void close() {
+    for (BaseKeyValueTransformation<R> stage : this.stages) {
+      stage.close();
+    }
+  }
+}
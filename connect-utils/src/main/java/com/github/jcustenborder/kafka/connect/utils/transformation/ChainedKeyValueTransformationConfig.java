@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2017 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.transformation;
+
+import com.github.jcustenborder.kafka.connect.utils.config.ConfigKeyBuilder;
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+
+import java.util.List;
+import java.util.Map;
+
+class ChainedKeyValueTransformationConfig extends AbstractConfig {
+  public static final String STAGES_CONF = "stages";
+  static final String STAGES_DOC = "Class names of the BaseKeyValueTransformation stages to run, in " +
+      "order. Stage n is configured with the settings that start with `" + STAGES_CONF + ".n.`, " +
+      "where n starts at 0, with that prefix removed.";
+
+  public final List<String> stages;
+
+  public ChainedKeyValueTransformationConfig(Map<?, ?> settings) {
+    super(config(), settings);
+    this.stages = getList(STAGES_CONF);
+  }
+
+  /**
+   * Prefix of the settings for the stage at the index.
+   *
+   * @param index index of the stage in stages.
+   * @return prefix
+   */
+  public static String stagePrefix(int index) {
+    return STAGES_CONF + "." + index + ".";
+  }
+
+  public static ConfigDef config() {
+    return new ConfigDef()
+        .define(
+            ConfigKeyBuilder.of(STAGES_CONF, ConfigDef.Type.LIST)
+                .documentation(STAGES_DOC)
+                .importance(ConfigDef.Importance.HIGH)
+                .build()
+        );
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares converting a batch of structs into one map per row with writing the same structs into
+ * a reused ColumnarBatch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarConverterBenchmark {
+  static final int RECORDS = 1024;
+
+  List<SinkRecord> records;
+  SchemaLessAbstractConverterTest.MockMapConverter rowConverter;
+  List<Map<String, Object>> rows;
+  ColumnarConverter columnarConverter;
+  ColumnarBatch batch;
+
+  @Setup
+  public void setup() {
+    this.records = new ArrayList<>(RECORDS);
+    for (int i = 0; i < RECORDS; i++) {
+      this.records.add(ColumnarConverterTest.record(ColumnarConverterTest.struct(i)));
+    }
+    this.rowConverter = new SchemaLessAbstractConverterTest.MockMapConverter();
+    this.rows = new ArrayList<>(RECORDS);
+    this.columnarConverter = new ColumnarConverter();
+    this.batch = new ColumnarBatch(ColumnarConverterTest.SCHEMA, RECORDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public List<Map<String, Object>> rows() {
+    return this.rowConverter.convertAll(this.records, this.rows);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public ColumnarBatch columnar() {
+    return this.columnarConverter.convertBatch(this.records, this.batch);
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ColumnarConverterBenchmark.class.getSimpleName())
+            .build()
+    ).run();
+  }
+}
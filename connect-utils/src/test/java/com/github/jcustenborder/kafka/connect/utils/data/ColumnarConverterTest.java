@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarConverterTest {
+  static final Schema SCHEMA = SchemaBuilder.struct()
+      .field("int8", Schema.OPTIONAL_INT8_SCHEMA)
+      .field("int32", Schema.OPTIONAL_INT32_SCHEMA)
+      .field("int64", Schema.OPTIONAL_INT64_SCHEMA)
+      .field("float32", Schema.OPTIONAL_FLOAT32_SCHEMA)
+      .field("float64", Schema.OPTIONAL_FLOAT64_SCHEMA)
+      .field("boolean", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+      .field("string", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("bytes", Schema.OPTIONAL_BYTES_SCHEMA)
+      .field("date", Date.builder().optional().build())
+      .field("timestamp", Timestamp.builder().optional().build())
+      .field("decimal", Decimal.builder(2).optional().build())
+      .build();
+
+  static SinkRecord record(Object value) {
+    return new SinkRecord("topic", 1, null, null, SCHEMA, value, 0L);
+  }
+
+  static Struct struct(int i) {
+    return new Struct(SCHEMA)
+        .put("int8", (byte) i)
+        .put("int32", i)
+        .put("int64", i * 1000L)
+        .put("float32", i + 0.5F)
+        .put("float64", i + 0.25D)
+        .put("boolean", i % 2 == 0)
+        .put("string", "value" + i)
+        .put("bytes", new byte[]{(byte) i})
+        .put("date", new java.util.Date(i * 86400000L))
+        .put("timestamp", new java.util.Date(i * 1000L))
+        .put("decimal", BigDecimal.valueOf(i, 2));
+  }
+
+  @Test
+  public void convertBatch() {
+    final List<SinkRecord> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      records.add(record(struct(i)));
+    }
+    final ColumnarConverter converter = new ColumnarConverter();
+    final ColumnarBatch batch = converter.convertBatch(records, new ColumnarBatch(SCHEMA, 8));
+    assertEquals(100, batch.rowCount());
+
+    final ColumnarBatch.BinaryColumn strings = (ColumnarBatch.BinaryColumn) batch.column("string");
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, ((ColumnarBatch.IntColumn) batch.column("int8")).getInt(i));
+      assertEquals(i, ((ColumnarBatch.IntColumn) batch.column("int32")).getInt(i));
+      assertEquals(i * 1000L, ((ColumnarBatch.LongColumn) batch.column("int64")).getLong(i));
+      assertEquals(i + 0.5D, ((ColumnarBatch.DoubleColumn) batch.column("float32")).getDouble(i));
+      assertEquals(i + 0.25D, ((ColumnarBatch.DoubleColumn) batch.column("float64")).getDouble(i));
+      assertEquals(i % 2 == 0, ((ColumnarBatch.BooleanColumn) batch.column("boolean")).getBoolean(i));
+      assertEquals("value" + i, strings.getString(i));
+      assertArrayEquals(new byte[]{(byte) i}, ((ColumnarBatch.BinaryColumn) batch.column("bytes")).getBytes(i));
+      assertEquals(i, ((ColumnarBatch.IntColumn) batch.column("date")).getInt(i));
+      assertEquals(i * 1000L, ((ColumnarBatch.LongColumn) batch.column("timestamp")).getLong(i));
+      assertEquals(BigDecimal.valueOf(i, 2), batch.column("decimal").get(i));
+    }
+    assertEquals("value0".length(), strings.offsets()[1]);
+
+    converter.convertBatch(records.subList(0, 2), batch);
+    assertEquals(2, batch.rowCount());
+    assertEquals("value1", strings.getString(1));
+  }
+
+  @Test
+  public void nulls() {
+    final Struct partial = new Struct(SCHEMA)
+        .put("int32", 5)
+        .put("string", "café");
+    final ColumnarBatch batch = new ColumnarBatch(SCHEMA, 4);
+    new ColumnarConverter().convertBatch(
+        Arrays.asList(record(partial), record(null), record(struct(1))),
+        batch
+    );
+    assertEquals(3, batch.rowCount());
+    for (int column = 0; column < batch.columnCount(); column++) {
+      assertTrue(batch.column(column).isNull(1), "row 1 should be null");
+      assertFalse(batch.column(column).isNull(2), "row 2 should not be null");
+    }
+    assertTrue(batch.column("int64").isNull(0));
+    assertNull(batch.column("bytes").get(0));
+    assertEquals(5, batch.column("int32").get(0));
+    assertEquals("café", batch.column("string").get(0));
+
+    final ColumnarBatch.BinaryColumn strings = (ColumnarBatch.BinaryColumn) batch.column("string");
+    assertEquals(strings.offsets()[1], strings.offsets()[2]);
+    assertEquals("value1", strings.getString(2));
+  }
+
+  @Test
+  public void schemaMismatch() {
+    final Schema other = SchemaBuilder.struct()
+        .field("int32", Schema.OPTIONAL_INT32_SCHEMA)
+        .build();
+    final ColumnarBatch batch = new ColumnarBatch(SCHEMA, 4);
+    final ColumnarConverter converter = new ColumnarConverter();
+    assertThrows(DataException.class, () -> converter.append(batch, new Struct(other).put("int32", 1)));
+    assertThrows(DataException.class, () -> converter.convert(ImmutableMap.of("int32", 1)));
+  }
+
+  @Test
+  public void convert() {
+    final ColumnarConverter converter = new ColumnarConverter();
+    final ColumnarBatch batch = converter.convert(struct(3));
+    assertEquals(1, batch.rowCount());
+    assertEquals(3000L, batch.column("int64").get(0));
+
+    final List<ColumnarBatch> batches = converter.convertAll(
+        Arrays.asList(record(struct(1)), record(null), record(struct(2))),
+        new ArrayList<>()
+    );
+    assertEquals(3, batches.size());
+    assertEquals("value1", batches.get(0).column("string").get(0));
+    assertNull(batches.get(1));
+    assertEquals("value2", batches.get(2).column("string").get(0));
+  }
+
+  @Test
+  public void failedRow() {
+    final ColumnarConverter converter = new ColumnarConverter() {
+      @Override
+      protected void setInt64Field(ColumnarBatch result, int fieldIndex, long value) {
+        if (value < 0) {
+          throw new DataException("negative");
+        }
+        super.setInt64Field(result, fieldIndex, value);
+      }
+    };
+    final ColumnarBatch batch = new ColumnarBatch(SCHEMA, 4);
+    converter.append(batch, struct(1));
+    assertThrows(DataException.class, () -> converter.append(batch, struct(2).put("int64", -1L)));
+    assertEquals(1, batch.rowCount());
+    converter.append(batch, new Struct(SCHEMA).put("decimal", BigDecimal.ONE.setScale(2)));
+    assertEquals(2, batch.rowCount());
+    for (int column = 0; column < batch.columnCount(); column++) {
+      if (!"decimal".equals(batch.schema().fields().get(column).name())) {
+        assertTrue(batch.column(column).isNull(1), "row 1 should be null");
+      }
+    }
+    final ColumnarBatch.BinaryColumn strings = (ColumnarBatch.BinaryColumn) batch.column("string");
+    assertEquals(strings.offsets()[1], strings.offsets()[2]);
+  }
+
+  @Test
+  public void byteBuffer() {
+    final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+    buffer.position(1);
+    final ColumnarBatch batch = new ColumnarConverter().convert(struct(1).put("bytes", buffer));
+    assertArrayEquals(new byte[]{2, 3, 4}, ((ColumnarBatch.BinaryColumn) batch.column("bytes")).getBytes(0));
+    assertEquals(1, buffer.position());
+  }
+}
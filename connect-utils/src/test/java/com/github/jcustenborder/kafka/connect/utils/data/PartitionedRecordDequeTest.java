@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionedRecordDequeTest {
+
+  SourceRecord newRecord(String partition, int offset) {
+    return new SourceRecord(
+        ImmutableMap.of("partition", partition),
+        ImmutableMap.of("offset", offset),
+        "foo",
+        null,
+        null,
+        null
+    );
+  }
+
+  static String describe(SourceRecord record) {
+    return String.format("%s%s", record.sourcePartition().get("partition"), record.sourceOffset().get("offset"));
+  }
+
+  static List<String> describe(List<SourceRecord> records) {
+    return records.stream().map(PartitionedRecordDequeTest::describe).collect(Collectors.toList());
+  }
+
+  @Test
+  public void roundRobin() {
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .fairPartitionDrain(true)
+        .batchSize(6)
+        .build();
+    for (int i = 0; i < 10; i++) {
+      deque.add(newRecord("a", i));
+    }
+    deque.add(newRecord("b", 0));
+    deque.add(newRecord("b", 1));
+    deque.add(newRecord("c", 0));
+
+    assertEquals(13, deque.size());
+    assertEquals(
+        List.of("a0", "b0", "c0", "a1", "b1", "a2"),
+        describe(deque.getBatch())
+    );
+    assertEquals(
+        List.of("a3", "a4", "a5", "a6", "a7", "a8"),
+        describe(deque.getBatch())
+    );
+    deque.add(newRecord("b", 2));
+    assertEquals(
+        List.of("a9", "b2"),
+        describe(deque.getBatch())
+    );
+    assertNull(deque.getBatch());
+    assertTrue(deque.isEmpty());
+  }
+
+  @Test
+  public void weighted() {
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .fairPartitionDrain(true)
+        .partitionWeigher(partition -> "a".equals(partition.get("partition")) ? 3 : 1)
+        .batchSize(8)
+        .build();
+    for (int i = 0; i < 5; i++) {
+      deque.add(newRecord("a", i));
+      deque.add(newRecord("b", i));
+    }
+    assertEquals(
+        List.of("a0", "a1", "a2", "b0", "a3", "a4", "b1", "b2"),
+        describe(deque.getBatch())
+    );
+  }
+
+  @Test
+  public void nullPartition() {
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .fairPartitionDrain(true)
+        .build();
+    deque.add(new SourceRecord(null, null, "foo", null, null));
+    assertEquals(1, deque.getBatch().size());
+  }
+
+  @Test
+  public void unsupported() {
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .fairPartitionDrain(true)
+        .build();
+    assertThrows(UnsupportedOperationException.class, () -> deque.addFirst(newRecord("a", 0)));
+    assertThrows(UnsupportedOperationException.class, () -> deque.pollLast());
+  }
+
+  @Test
+  public void shortLivedPartitions() {
+    final PartitionedRecordDeque deque = new PartitionedRecordDeque(partition -> 1);
+    for (int i = 0; i < 10000; i++) {
+      deque.offer(newRecord("file" + i, 0));
+      deque.offer(newRecord("file" + i, 1));
+      assertEquals("file" + i + "0", describe(deque.poll()));
+      assertEquals("file" + i + "1", describe(deque.poll()));
+      assertTrue(deque.partitionCount() <= 1, "partitions were not removed");
+    }
+    assertNull(deque.poll());
+    assertEquals(0, deque.partitionCount());
+  }
+
+  @Test
+  public void shortLivedPartitionsConcurrent() throws Exception {
+    final PartitionedRecordDeque deque = new PartitionedRecordDeque(partition -> 1);
+    final int producers = 4;
+    final int records = 20000;
+    final ExecutorService executorService = Executors.newFixedThreadPool(producers);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int producer = 0; producer < producers; producer++) {
+        final String prefix = "p" + producer + "-";
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < records; i++) {
+            // Each partition only lives for a few records.
+            deque.offer(newRecord(prefix + (i / 4), i));
+          }
+        }));
+      }
+      final Map<String, Integer> lastOffsets = new HashMap<>();
+      int received = 0;
+      while (received < producers * records) {
+        final SourceRecord record = deque.poll();
+        if (null == record) {
+          continue;
+        }
+        final String partition = (String) record.sourcePartition().get("partition");
+        final int offset = (Integer) record.sourceOffset().get("offset");
+        final Integer last = lastOffsets.put(partition, offset);
+        assertTrue(null == last || last < offset, "records of " + partition + " are out of order");
+        received++;
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    assertNull(deque.poll());
+    assertEquals(0, deque.size());
+    assertEquals(0, deque.partitionCount());
+  }
+}
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Date;
@@ -32,6 +33,9 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 import static com.github.jcustenborder.kafka.connect.utils.AssertStruct.assertStruct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 
 public class SchemaAbstractConverterTest {
@@ -117,6 +121,121 @@ public class SchemaAbstractConverterTest {
     assertStruct(expected, actual);
   }
 
+  @Test
+  public void planCached() {
+    final Schema schema = SchemaBuilder.struct()
+        .field("firstName", Schema.OPTIONAL_STRING_SCHEMA)
+        .field("age", Schema.OPTIONAL_INT32_SCHEMA)
+        .build();
+    MockStructConverter converter = new MockStructConverter(schema);
+    assertSame(converter.plan(schema), converter.plan(schema));
+    for (int i = 0; i < 10; i++) {
+      final Struct expected = new Struct(schema)
+          .put("firstName", "Example" + i)
+          .put("age", i % 2 == 0 ? null : i);
+      assertStruct(expected, converter.convert(expected));
+    }
+  }
+
+  @Test
+  public void planDoesNotKeepSchema() throws InterruptedException {
+    MockStructConverter converter = new MockStructConverter(SchemaBuilder.struct().build());
+    Schema schema = SchemaBuilder.struct()
+        .field("firstName", Schema.OPTIONAL_STRING_SCHEMA)
+        .field("tags", SchemaBuilder.array(Schema.STRING_SCHEMA).optional().build())
+        .field("attributes", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.STRING_SCHEMA).optional().build())
+        .build();
+    converter.plan(schema);
+    final WeakReference<Schema> reference = new WeakReference<>(schema);
+    schema = null;
+    for (int i = 0; i < 50 && null != reference.get(); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get(), "plan keeps the schema it is cached under reachable.");
+  }
+
+  @Test
+  public void primitiveSetters() {
+    final Schema schema = SchemaBuilder.struct()
+        .field("int8", Schema.INT8_SCHEMA)
+        .field("int16", Schema.INT16_SCHEMA)
+        .field("int32", Schema.INT32_SCHEMA)
+        .field("int64", Schema.INT64_SCHEMA)
+        .field("float32", Schema.FLOAT32_SCHEMA)
+        .field("float64", Schema.FLOAT64_SCHEMA)
+        .field("boolean", Schema.BOOLEAN_SCHEMA)
+        .field("timestamp", Timestamp.SCHEMA)
+        .field("optional", Schema.OPTIONAL_INT32_SCHEMA)
+        .build();
+    final Struct expected = new Struct(schema)
+        .put("int8", Byte.MAX_VALUE)
+        .put("int16", Short.MAX_VALUE)
+        .put("int32", Integer.MAX_VALUE)
+        .put("int64", Long.MAX_VALUE)
+        .put("float32", Float.MAX_VALUE)
+        .put("float64", Double.MAX_VALUE)
+        .put("boolean", true)
+        .put("timestamp", new Date());
+    PrimitiveStructConverter converter = new PrimitiveStructConverter(schema);
+    final Struct actual = converter.convert(expected);
+    assertStruct(expected, actual);
+    assertEquals(7, converter.primitiveCalls);
+  }
+
+  static class PrimitiveStructConverter extends MockStructConverter {
+    int primitiveCalls;
+
+    PrimitiveStructConverter(Schema schema) {
+      super(schema);
+    }
+
+    void put(Struct result, int fieldIndex, Object value) {
+      this.primitiveCalls++;
+      result.put(this.schema.fields().get(fieldIndex), value);
+    }
+
+    @Override
+    protected boolean usePrimitiveSetters() {
+      return true;
+    }
+
+    @Override
+    protected void setInt8Field(Struct result, int fieldIndex, byte value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setInt16Field(Struct result, int fieldIndex, short value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setInt32Field(Struct result, int fieldIndex, int value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setInt64Field(Struct result, int fieldIndex, long value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setFloat32Field(Struct result, int fieldIndex, float value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setFloat64Field(Struct result, int fieldIndex, double value) {
+      put(result, fieldIndex, value);
+    }
+
+    @Override
+    protected void setBooleanField(Struct result, int fieldIndex, boolean value) {
+      put(result, fieldIndex, value);
+    }
+  }
+
   static class MockStructConverter extends AbstractConverter<Struct> {
     final Schema schema;
 
@@ -16,16 +16,25 @@
 package com.github.jcustenborder.kafka.connect.utils.data;
 
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.github.jcustenborder.kafka.connect.utils.GenericAssertions.assertMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class SchemaLessAbstractConverterTest {
   @Test
@@ -46,6 +55,87 @@ public class SchemaLessAbstractConverterTest {
     assertMap(expected, actual, "");
   }
 
+  static List<SinkRecord> records(int count) {
+    final Schema first = SchemaBuilder.struct()
+        .field("id", Schema.INT32_SCHEMA)
+        .build();
+    final Schema second = SchemaBuilder.struct()
+        .field("id", Schema.INT32_SCHEMA)
+        .field("name", Schema.STRING_SCHEMA)
+        .build();
+    final List<SinkRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final Object value;
+      final Schema schema;
+      if (i % 10 == 9) {
+        schema = null;
+        value = null;
+      } else if (i % 2 == 0) {
+        schema = first;
+        value = new Struct(first).put("id", i);
+      } else {
+        schema = second;
+        value = new Struct(second).put("id", i).put("name", "name" + i);
+      }
+      records.add(new SinkRecord("topic", 0, null, null, schema, value, i));
+    }
+    return records;
+  }
+
+  static void assertConverted(List<SinkRecord> records, List<Map<String, Object>> actual) {
+    assertEquals(records.size(), actual.size());
+    for (int i = 0; i < records.size(); i++) {
+      if (null == records.get(i).value()) {
+        assertNull(actual.get(i), "Tombstones should convert to null.");
+      } else {
+        assertEquals(i, actual.get(i).get("id"), "Results should be in input order.");
+      }
+    }
+  }
+
+  @Test
+  public void convertAll() {
+    final List<SinkRecord> records = records(100);
+    final List<Map<String, Object>> output = new ArrayList<>();
+    output.add(new LinkedHashMap<>());
+    MockMapConverter converter = new MockMapConverter();
+    assertSame(output, converter.convertAll(records, output));
+    assertConverted(records, output);
+  }
+
+  @Test
+  public void convertAllParallel() {
+    final List<SinkRecord> records = records(AbstractConverter.PARALLEL_THRESHOLD * 5 + 3);
+    MockMapConverter converter = new MockMapConverter();
+    final List<Map<String, Object>> output = converter.convertAll(records, new ArrayList<>(), ForkJoinPool.commonPool());
+    assertConverted(records, output);
+  }
+
+  @Test
+  public void cacheMapKeyTypes() {
+    MockMapConverter converter = new MockMapConverter() {
+      @Override
+      protected boolean cacheMapKeyTypes() {
+        return true;
+      }
+    };
+    final Map<String, Object> expected = new LinkedHashMap<>();
+    expected.put("id", 1);
+    expected.put("name", "Example");
+    expected.put("score", null);
+    assertMap(expected, converter.convert(expected), "");
+    assertSame(converter.cachedMapSetter("id", 2), converter.cachedMapSetter("id", 3));
+
+    expected.put("id", "changed");
+    expected.put("score", 1.5D);
+    assertMap(expected, converter.convert(expected), "");
+    expected.put("id", 4L);
+    assertMap(expected, converter.convert(expected), "");
+
+    expected.put("id", new Object());
+    assertThrows(DataException.class, () -> converter.convert(expected));
+  }
+
   static class MockMapConverter extends AbstractConverter<Map<String, Object>> {
     @Override
     protected Map<String, Object> newValue() {
@@ -0,0 +1,160 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of moving records from a number of producer threads to a single
+ * consumer calling getBatch(). Producers either add records one at a time or in batches with
+ * offerBatch().
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SourceRecordDequeBenchmark {
+  static final int BATCH_SIZE = 500;
+  /**
+   * Multiple of every producer count times BATCH_SIZE, so each producer moves the same number of
+   * whole batches and the total matches @OperationsPerInvocation.
+   */
+  static final int RECORDS = 12 * 16 * BATCH_SIZE;
+
+  @Param({"1", "4", "16"})
+  public int producers;
+
+  @Param({"concurrentLinkedDeque", "ringBuffer"})
+  public String implementation;
+
+  SourceRecord record;
+  SourceRecord[] records;
+  ExecutorService executorService;
+  SourceRecordDeque deque;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    this.record = new SourceRecord(ImmutableMap.of(), ImmutableMap.of(), "foo", null, null, null);
+    this.records = new SourceRecord[BATCH_SIZE];
+    Arrays.fill(this.records, this.record);
+    this.executorService = Executors.newFixedThreadPool(this.producers);
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    this.deque = SourceRecordDequeBuilder.of()
+        .maximumCapacity(8192)
+        .signalOnDrain(true)
+        .ringBuffer("ringBuffer".equals(this.implementation))
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.executorService.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void transfer(Blackhole blackhole) throws Exception {
+    final int recordsPerProducer = RECORDS / this.producers;
+    List<Future<?>> futures = new ArrayList<>(this.producers);
+    for (int i = 0; i < this.producers; i++) {
+      futures.add(this.executorService.submit(() -> {
+        for (int j = 0; j < recordsPerProducer; j++) {
+          this.deque.add(this.record);
+        }
+      }));
+    }
+
+    int drained = 0;
+    while (drained < RECORDS) {
+      List<SourceRecord> batch = this.deque.getBatch();
+      if (null != batch) {
+        drained += batch.size();
+        blackhole.consume(batch);
+      }
+    }
+
+    for (Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void transferBatch(Blackhole blackhole) throws Exception {
+    final int batchesPerProducer = RECORDS / this.producers / this.records.length;
+    List<Future<?>> futures = new ArrayList<>(this.producers);
+    for (int i = 0; i < this.producers; i++) {
+      futures.add(this.executorService.submit(() -> {
+        for (int j = 0; j < batchesPerProducer; j++) {
+          this.deque.offerBatch(this.records, 0, this.records.length);
+        }
+      }));
+    }
+
+    int drained = 0;
+    while (drained < RECORDS) {
+      List<SourceRecord> batch = this.deque.getBatch();
+      if (null != batch) {
+        drained += batch.size();
+        blackhole.consume(batch);
+      }
+    }
+
+    for (Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(SourceRecordDequeBenchmark.class.getSimpleName())
+            .build()
+    ).run();
+  }
+}
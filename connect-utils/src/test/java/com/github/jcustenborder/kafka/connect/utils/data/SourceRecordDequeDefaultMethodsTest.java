@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ForwardingDeque;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a SourceRecordDeque written before the newer methods were added to the interface
+ * still compiles and gets working default implementations.
+ */
+public class SourceRecordDequeDefaultMethodsTest {
+
+  static class LegacyDeque extends ForwardingDeque<SourceRecord> implements SourceRecordDeque {
+    final Deque<SourceRecord> records = new ConcurrentLinkedDeque<>();
+
+    @Override
+    protected Deque<SourceRecord> delegate() {
+      return this.records;
+    }
+
+    @Override
+    public List<SourceRecord> newList() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public List<SourceRecord> drain() {
+      return getBatch();
+    }
+
+    @Override
+    public List<SourceRecord> getBatch(int emptyWaitMs) {
+      final List<SourceRecord> result = newList();
+      return drain(result, emptyWaitMs) ? result : null;
+    }
+
+    @Override
+    public List<SourceRecord> getBatch() {
+      return getBatch(0);
+    }
+
+    @Override
+    public boolean drain(List<SourceRecord> records) {
+      return drain(records, 0);
+    }
+
+    @Override
+    public boolean drain(List<SourceRecord> records, int emptyWaitMs) {
+      boolean result = false;
+      SourceRecord record;
+      while (null != (record = this.records.poll())) {
+        records.add(record);
+        result = true;
+      }
+      return result;
+    }
+  }
+
+  static SourceRecord newRecord(int offset) {
+    return new SourceRecord(
+        ImmutableMap.of("partition", "a"),
+        ImmutableMap.of("offset", offset),
+        "foo",
+        null,
+        null
+    );
+  }
+
+  @Test
+  public void tryAdd() {
+    final LegacyDeque deque = new LegacyDeque();
+    final SourceRecord record = newRecord(0);
+    assertTrue(deque.tryAdd(record));
+    assertEquals(List.of(record), deque.getBatch());
+  }
+
+  @Test
+  public void offerBatch() {
+    final LegacyDeque deque = new LegacyDeque();
+    final SourceRecord[] records = new SourceRecord[]{newRecord(0), newRecord(1), newRecord(2), newRecord(3)};
+    assertEquals(2, deque.offerBatch(records, 1, 3));
+    assertEquals(List.of(records[1], records[2]), deque.getBatch());
+  }
+
+  @Test
+  public void getBatchTimeout() throws InterruptedException {
+    final LegacyDeque deque = new LegacyDeque();
+    assertNull(deque.getBatch(10, TimeUnit.MILLISECONDS));
+    final SourceRecord record = newRecord(0);
+    deque.add(record);
+    assertEquals(List.of(record), deque.getBatch(1, TimeUnit.MINUTES));
+  }
+
+  @Test
+  public void getBatchMinimumBatchSize() throws Exception {
+    final LegacyDeque deque = new LegacyDeque();
+    final List<SourceRecord> expected = List.of(newRecord(0), newRecord(1), newRecord(2));
+    deque.add(expected.get(0));
+    final Thread producer = new Thread(() -> {
+      deque.add(expected.get(1));
+      deque.add(expected.get(2));
+    });
+    producer.start();
+    assertEquals(expected, deque.getBatch(1, TimeUnit.MINUTES, 3));
+    producer.join();
+    deque.add(expected.get(0));
+    assertEquals(expected.subList(0, 1), deque.getBatch(10, TimeUnit.MILLISECONDS, 3));
+  }
+
+  @Test
+  public void recycle() {
+    final LegacyDeque deque = new LegacyDeque();
+    final SourceRecord record = newRecord(0);
+    deque.add(record);
+    final List<SourceRecord> batch = deque.getBatch();
+    deque.recycle(batch);
+    assertEquals(List.of(record), batch);
+  }
+
+  @Test
+  public void close() {
+    final LegacyDeque deque = new LegacyDeque();
+    final SourceRecord record = newRecord(0);
+    deque.add(record);
+    deque.close();
+    assertEquals(List.of(record), deque.getBatch());
+  }
+}
@@ -16,20 +16,28 @@
 package com.github.jcustenborder.kafka.connect.utils.data;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.metrics.Metrics;
 import org.apache.kafka.common.utils.Time;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -105,4 +113,302 @@ public class SourceRecordDequeTest {
     verify(this.time, atLeastOnce()).sleep(100);
   }
 
+  @Test
+  public void size() {
+    SourceRecordDeque deque = this.builder.build();
+    for (int i = 0; i < 10; i++) {
+      deque.add(newRecord());
+    }
+    assertEquals(10, deque.size());
+    assertNotNull(deque.poll());
+    assertNotNull(deque.pollLast());
+    assertEquals(8, deque.size());
+    Iterator<SourceRecord> iterator = deque.iterator();
+    iterator.next();
+    iterator.remove();
+    assertEquals(7, deque.size());
+    deque.clear();
+    assertEquals(0, deque.size());
+    assertTrue(deque.isEmpty());
+  }
+
+  @Test
+  public void signalOnDrain() throws Exception {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder
+        .signalOnDrain(true)
+        .maximumCapacity(1)
+        .maximumCapacityTimeoutMs(30000)
+        .build();
+    deque.add(newRecord());
+    CompletableFuture<Boolean> producer = CompletableFuture.supplyAsync(() -> deque.add(newRecord()));
+    Thread.sleep(100);
+    assertFalse(producer.isDone(), "producer should be waiting for capacity.");
+    assertEquals(1, deque.getBatch().size());
+    assertTrue(producer.get(5, TimeUnit.SECONDS));
+    assertEquals(1, deque.size());
+  }
+
+  @Test
+  public void signalOnDrainTimeout() {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder
+        .signalOnDrain(true)
+        .maximumCapacity(1)
+        .maximumCapacityTimeoutMs(50)
+        .build();
+    deque.add(newRecord());
+    assertThrows(TimeoutException.class, () -> deque.add(newRecord()));
+  }
+
+  @Test
+  public void getBatchWakesOnArrival() throws Exception {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder.build();
+    CompletableFuture.runAsync(() -> {
+      Time.SYSTEM.sleep(50);
+      deque.add(newRecord());
+    });
+    final long start = System.currentTimeMillis();
+    List<SourceRecord> records = deque.getBatch(30, TimeUnit.SECONDS);
+    assertNotNull(records, "records should not be null.");
+    assertEquals(1, records.size());
+    assertTrue(System.currentTimeMillis() - start < 10000, "getBatch should have returned when the record arrived.");
+  }
+
+  @Test
+  public void getBatchTimeout() throws Exception {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder.build();
+    assertNull(deque.getBatch(50, TimeUnit.MILLISECONDS), "Records should be null.");
+  }
+
+  @Test
+  public void getBatchMinimumBatchSize() throws Exception {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder.build();
+    deque.add(newRecord());
+    List<SourceRecord> records = deque.getBatch(50, TimeUnit.MILLISECONDS, 3);
+    assertNotNull(records, "records should not be null.");
+    assertEquals(1, records.size(), "Records available at the timeout should be returned.");
+
+    CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < 3; i++) {
+        Time.SYSTEM.sleep(10);
+        deque.add(newRecord());
+      }
+    });
+    records = deque.getBatch(30, TimeUnit.SECONDS, 3);
+    assertNotNull(records, "records should not be null.");
+    assertEquals(3, records.size());
+  }
+
+  @Test
+  public void batchSizeBytes() {
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 100)
+        .batchSizeBytes(250)
+        .build();
+    for (int i = 0; i < 5; i++) {
+      deque.add(newRecord());
+    }
+    assertEquals(500, ((SourceRecordDequeImpl) deque).bytes());
+    assertEquals(2, deque.getBatch().size());
+    assertEquals(2, deque.getBatch().size());
+    assertEquals(1, deque.getBatch().size());
+    assertEquals(0, ((SourceRecordDequeImpl) deque).bytes());
+  }
+
+  @Test
+  public void batchSizeBytesOversizedRecord() {
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 1000)
+        .batchSizeBytes(250)
+        .build();
+    deque.add(newRecord());
+    deque.add(newRecord());
+    assertEquals(1, deque.getBatch().size(), "A batch should always contain at least one record.");
+  }
+
+  @Test
+  public void maximumCapacityBytes() {
+    this.builder.time = Time.SYSTEM;
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 100)
+        .maximumCapacityBytes(300)
+        .maximumCapacityTimeoutMs(50)
+        .signalOnDrain(true)
+        .build();
+    for (int i = 0; i < 3; i++) {
+      deque.add(newRecord());
+    }
+    assertThrows(TimeoutException.class, () -> deque.add(newRecord()));
+    assertNotNull(deque.poll());
+    deque.add(newRecord());
+    assertEquals(3, deque.size());
+  }
+
+  @Test
+  public void tryAdd() {
+    when(this.time.nanoseconds()).thenReturn(0L);
+    TokenBucket recordRateLimit = new TokenBucket(this.time, 2, 1);
+    SourceRecordDeque deque = this.builder
+        .maximumCapacity(5)
+        .recordRateLimit(recordRateLimit)
+        .build();
+    assertTrue(deque.tryAdd(newRecord()));
+    assertTrue(deque.tryAdd(newRecord()));
+    assertFalse(deque.tryAdd(newRecord()), "Rate limit should reject the third record.");
+    assertEquals(2, deque.size());
+    assertEquals(1, recordRateLimit.rejectedCount());
+
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.SECONDS.toNanos(10));
+    assertTrue(deque.tryAdd(newRecord()));
+    assertTrue(deque.tryAdd(newRecord()));
+    recordRateLimit.rate(1000);
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.SECONDS.toNanos(11));
+    assertTrue(deque.tryAdd(newRecord()));
+    assertFalse(deque.tryAdd(newRecord()), "Deque should be full.");
+    assertEquals(5, deque.size());
+  }
+
+  @Test
+  public void tryAddReleasesPermits() {
+    when(this.time.nanoseconds()).thenReturn(0L);
+    TokenBucket recordRateLimit = new TokenBucket(this.time, 2, 1);
+    TokenBucket byteRateLimit = new TokenBucket(this.time, 100, 1);
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 60)
+        .recordRateLimit(recordRateLimit)
+        .byteRateLimit(byteRateLimit)
+        .build();
+    assertTrue(deque.tryAdd(newRecord()));
+    assertFalse(deque.tryAdd(newRecord()), "Byte rate limit should reject the second record.");
+    assertTrue(recordRateLimit.tryAcquire(1), "The record permit should have been given back.");
+    assertFalse(recordRateLimit.tryAcquire(1));
+  }
+
+  @Test
+  public void byteRateLimit() {
+    when(this.time.nanoseconds()).thenReturn(0L);
+    TokenBucket byteRateLimit = new TokenBucket(this.time, 100, 1);
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 60)
+        .byteRateLimit(byteRateLimit)
+        .build();
+    deque.add(newRecord());
+    deque.add(newRecord());
+    assertEquals(1, byteRateLimit.throttledCount());
+    verify(this.time).sleep(200L);
+    assertEquals(120, ((SourceRecordDequeImpl) deque).bytes());
+  }
+
+  double metricValue(Metrics metrics, String name) {
+    MetricName metricName = metrics.metricName(name, SourceRecordDequeMetrics.GROUP, ImmutableMap.of("task", "0"));
+    return ((Number) metrics.metric(metricName).metricValue()).doubleValue();
+  }
+
+  @Test
+  public void metrics() {
+    try (Metrics metrics = new Metrics()) {
+      when(this.time.nanoseconds()).thenReturn(0L);
+      SourceRecordDeque deque = this.builder
+          .batchSize(4)
+          .metrics(metrics)
+          .metricTags(ImmutableMap.of("task", "0"))
+          .build();
+      for (int i = 0; i < 6; i++) {
+        deque.add(newRecord());
+      }
+      assertEquals(6D, metricValue(metrics, "depth"));
+      assertEquals(6D, metricValue(metrics, "enqueue-total"));
+
+      when(this.time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(25));
+      assertEquals(4, deque.getBatch().size());
+      assertEquals(2, deque.getBatch().size());
+      assertEquals(0D, metricValue(metrics, "depth"));
+      assertEquals(4D, metricValue(metrics, "batch-size-max"));
+      assertEquals(3D, metricValue(metrics, "batch-size-avg"));
+      assertEquals(25D, metricValue(metrics, "drain-latency-max-ms"));
+
+      deque.close();
+      assertNull(metrics.metric(metrics.metricName("depth", SourceRecordDequeMetrics.GROUP, ImmutableMap.of("task", "0"))));
+    }
+  }
+
+  @Test
+  public void metricsProducerBlocked() {
+    try (Metrics metrics = new Metrics()) {
+      when(this.time.nanoseconds()).thenReturn(0L);
+      SourceRecordDeque deque = this.builder
+          .recordRateLimit(new TokenBucket(this.time, 10, 1))
+          .metrics(metrics)
+          .metricTags(ImmutableMap.of("task", "0"))
+          .build();
+      for (int i = 0; i < 11; i++) {
+        deque.add(newRecord());
+      }
+      assertEquals(100D, metricValue(metrics, "producer-blocked-time-ms-total"));
+      assertEquals(1D, metricValue(metrics, "producer-blocked-total"));
+      deque.close();
+    }
+  }
+
+  @Test
+  public void offerBatch() {
+    SourceRecordDeque deque = this.builder
+        .sizeEstimator(record -> 10)
+        .maximumCapacityBytes(1000)
+        .build();
+    SourceRecord[] records = new SourceRecord[10];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = newRecord();
+    }
+    assertEquals(6, deque.offerBatch(records, 2, 8));
+    assertEquals(6, deque.size());
+    assertEquals(60, ((SourceRecordDequeImpl) deque).bytes());
+    assertEquals(0, deque.offerBatch(records, 3, 3));
+    assertThrows(IndexOutOfBoundsException.class, () -> deque.offerBatch(records, 8, 11));
+    records[9] = null;
+    assertThrows(NullPointerException.class, () -> deque.offerBatch(records, 0, 10));
+    assertEquals(6, deque.size());
+    assertSame(records[2], deque.poll());
+  }
+
+  @Test
+  public void recycle() {
+    SourceRecordDeque deque = this.builder
+        .batchSize(4)
+        .batchListPoolSize(1)
+        .build();
+    for (int i = 0; i < 6; i++) {
+      deque.add(newRecord());
+    }
+    List<SourceRecord> first = deque.getBatch();
+    assertEquals(4, first.size());
+    deque.recycle(first);
+    assertTrue(first.isEmpty(), "Recycled list should have been cleared.");
+
+    List<SourceRecord> second = deque.getBatch();
+    assertSame(first, second, "List should have been taken from the pool.");
+    assertEquals(2, second.size());
+
+    List<SourceRecord> other = new ArrayList<>();
+    deque.recycle(second);
+    deque.recycle(other);
+    deque.add(newRecord());
+    assertSame(second, deque.getBatch());
+    assertNull(deque.getBatch());
+  }
+
+  @Test
+  public void recycleDisabled() {
+    SourceRecordDeque deque = this.builder.build();
+    deque.add(newRecord());
+    List<SourceRecord> first = deque.getBatch();
+    deque.recycle(first);
+    assertEquals(1, first.size(), "List should not be touched when pooling is disabled.");
+    deque.add(newRecord());
+    assertNotSame(first, deque.getBatch());
+  }
 }
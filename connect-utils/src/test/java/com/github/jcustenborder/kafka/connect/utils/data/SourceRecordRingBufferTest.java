@@ -0,0 +1,204 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SourceRecordRingBufferTest {
+
+  SourceRecord newRecord(int offset) {
+    return new SourceRecord(
+        ImmutableMap.of(),
+        ImmutableMap.of("offset", offset),
+        "foo",
+        null,
+        null,
+        null
+    );
+  }
+
+  @Test
+  public void capacity() {
+    assertEquals(1, new SourceRecordRingBuffer(1).capacity());
+    assertEquals(8, new SourceRecordRingBuffer(5).capacity());
+    assertEquals(8, new SourceRecordRingBuffer(8).capacity());
+  }
+
+  @Test
+  public void full() {
+    SourceRecordRingBuffer buffer = new SourceRecordRingBuffer(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(newRecord(i)));
+    }
+    assertFalse(buffer.offer(newRecord(5)), "buffer is full. False should have been returned.");
+    assertEquals(4, buffer.size());
+  }
+
+  @Test
+  public void wrapAround() {
+    SourceRecordRingBuffer buffer = new SourceRecordRingBuffer(4);
+    int expected = 0;
+    for (int i = 0; i < 10; i++) {
+      assertTrue(buffer.offer(newRecord(i)));
+      if (i % 2 == 1) {
+        assertEquals(expected++, buffer.poll().sourceOffset().get("offset"));
+        assertEquals(expected++, buffer.poll().sourceOffset().get("offset"));
+      }
+    }
+    assertNull(buffer.poll());
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void drainTo() {
+    SourceRecordRingBuffer buffer = new SourceRecordRingBuffer(8);
+    for (int i = 0; i < 6; i++) {
+      buffer.offer(newRecord(i));
+    }
+    List<SourceRecord> records = new ArrayList<>();
+    assertEquals(4, buffer.drainTo(records, 4));
+    assertEquals(2, buffer.drainTo(records, 4));
+    assertEquals(6, records.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertEquals(i, records.get(i).sourceOffset().get("offset"));
+    }
+  }
+
+  @Test
+  public void offerBatch() {
+    SourceRecordRingBuffer buffer = new SourceRecordRingBuffer(4);
+    SourceRecord[] records = new SourceRecord[6];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = newRecord(i);
+    }
+    assertEquals(4, buffer.offerBatch(records, 0, 6), "Only the free slots should be claimed.");
+    assertEquals(0, buffer.offerBatch(records, 4, 6));
+    assertEquals(0, buffer.poll().sourceOffset().get("offset"));
+    assertEquals(1, buffer.offerBatch(records, 4, 6));
+    for (int i = 1; i < 5; i++) {
+      assertEquals(i, buffer.poll().sourceOffset().get("offset"));
+    }
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void producerBatches() throws Exception {
+    final int producers = 4;
+    final int batches = 100;
+    final SourceRecord[] records = new SourceRecord[500];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = newRecord(i);
+    }
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .ringBuffer(true)
+        .maximumCapacity(1024)
+        .signalOnDrain(true)
+        .build();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < producers; i++) {
+      futures.add(CompletableFuture.runAsync(() -> {
+        for (int j = 0; j < batches; j++) {
+          deque.offerBatch(records, 0, records.length);
+        }
+      }));
+    }
+    final int total = producers * batches * records.length;
+    int count = 0;
+    while (count < total) {
+      List<SourceRecord> batch = deque.getBatch(1, TimeUnit.SECONDS);
+      if (null != batch) {
+        count += batch.size();
+      }
+    }
+    for (CompletableFuture<Void> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    assertEquals(total, count);
+    assertTrue(deque.isEmpty());
+  }
+
+  @Test
+  public void unsupported() {
+    SourceRecordRingBuffer buffer = new SourceRecordRingBuffer(8);
+    assertThrows(UnsupportedOperationException.class, () -> buffer.addFirst(newRecord(0)));
+    assertThrows(UnsupportedOperationException.class, () -> buffer.pollLast());
+  }
+
+  @Test
+  public void addFirstRejectedBeforeWaiting() {
+    Time time = mock(Time.class);
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .ringBuffer(true)
+        .maximumCapacity(1)
+        .maximumCapacityTimeoutMs(60000)
+        .recordRateLimit(new TokenBucket(time, 2, 1))
+        .build();
+    assertTrue(deque.tryAdd(newRecord(0)));
+    assertThrows(UnsupportedOperationException.class, () -> deque.addFirst(newRecord(1)));
+    assertThrows(UnsupportedOperationException.class, () -> deque.push(newRecord(2)));
+    deque.poll();
+    assertTrue(deque.tryAdd(newRecord(3)), "addFirst() should not have taken a rate limit permit.");
+  }
+
+  @Test
+  public void producers() throws Exception {
+    final int producers = 4;
+    final int recordsPerProducer = 10000;
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .ringBuffer(true)
+        .maximumCapacity(128)
+        .signalOnDrain(true)
+        .build();
+    SourceRecord record = newRecord(0);
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < producers; i++) {
+      futures.add(CompletableFuture.runAsync(() -> {
+        for (int j = 0; j < recordsPerProducer; j++) {
+          deque.add(record);
+        }
+      }));
+    }
+    int count = 0;
+    while (count < producers * recordsPerProducer) {
+      List<SourceRecord> batch = deque.getBatch(1, TimeUnit.SECONDS);
+      if (null != batch) {
+        batch.forEach(r -> assertSame(record, r));
+        count += batch.size();
+      }
+    }
+    for (CompletableFuture<Void> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    assertEquals(producers * recordsPerProducer, count);
+    assertTrue(deque.isEmpty());
+  }
+}
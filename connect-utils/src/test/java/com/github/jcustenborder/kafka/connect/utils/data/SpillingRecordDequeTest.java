@@ -0,0 +1,250 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpillingRecordDequeTest {
+  static final SourceRecordSerializer SERIALIZER = new SourceRecordSerializer() {
+    @Override
+    public byte[] serialize(SourceRecord record) throws IOException {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(outputStream)) {
+        output.writeInt((Integer) record.sourceOffset().get("offset"));
+        output.writeUTF(record.topic());
+        byte[] value = ((String) record.value()).getBytes();
+        output.writeInt(value.length);
+        output.write(value);
+      }
+      return outputStream.toByteArray();
+    }
+
+    @Override
+    public SourceRecord deserialize(byte[] buffer) throws IOException {
+      try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer))) {
+        int offset = input.readInt();
+        String topic = input.readUTF();
+        byte[] value = new byte[input.readInt()];
+        input.readFully(value);
+        return newRecord(topic, offset, new String(value));
+      }
+    }
+  };
+
+  @TempDir
+  File tempDir;
+
+  static SourceRecord newRecord(String topic, int offset, String value) {
+    return new SourceRecord(
+        ImmutableMap.of(),
+        ImmutableMap.of("offset", offset),
+        topic,
+        null,
+        null,
+        value
+    );
+  }
+
+  static List<Integer> offsets(List<SourceRecord> records) {
+    return records.stream()
+        .map(r -> (Integer) r.sourceOffset().get("offset"))
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void spill() {
+    SpillingRecordDeque store = new SpillingRecordDeque(this.tempDir, 3, 64, SERIALIZER);
+    for (int i = 0; i < 20; i++) {
+      store.add(newRecord("foo", i, "value" + i));
+    }
+    assertEquals(20, store.size());
+    assertEquals(17, store.spilled());
+    assertTrue(store.segments() > 1, "Small segments should have rolled.");
+
+    List<SourceRecord> records = new ArrayList<>();
+    SourceRecord record;
+    while (null != (record = store.poll())) {
+      records.add(record);
+    }
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      expected.add(i);
+    }
+    assertEquals(expected, offsets(records));
+    assertEquals("value19", records.get(19).value());
+    assertEquals(0, store.size());
+    assertEquals(0, store.segments(), "Segments should be deleted once they are read.");
+
+    store.add(newRecord("foo", 20, "value20"));
+    assertEquals(0, store.spilled(), "Records should be held in memory again once the spill is drained.");
+  }
+
+  @Test
+  public void largeRecord() {
+    SpillingRecordDeque store = new SpillingRecordDeque(this.tempDir, 1, 1024, SERIALIZER);
+    String value = Strings.repeat("a", 200 * 1024);
+    store.add(newRecord("foo", 0, "small"));
+    store.add(newRecord("foo", 1, value));
+    store.add(newRecord("foo", 2, "small"));
+    assertEquals(0, offsets(List.of(store.poll())).get(0));
+    assertEquals(1, offsets(List.of(store.peek())).get(0));
+    assertEquals(value, store.poll().value());
+    assertEquals("small", store.poll().value());
+  }
+
+  @Test
+  public void getBatch() {
+    SourceRecordDeque deque = SourceRecordDequeBuilder.of()
+        .spillDirectory(this.tempDir)
+        .spillThreshold(5)
+        .spillSerializer(SERIALIZER)
+        .batchSize(8)
+        .build();
+    for (int i = 0; i < 20; i++) {
+      deque.add(newRecord("foo", i, "value" + i));
+    }
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), offsets(deque.getBatch()));
+    assertEquals(List.of(8, 9, 10, 11, 12, 13, 14, 15), offsets(deque.getBatch()));
+    assertEquals(List.of(16, 17, 18, 19), offsets(deque.getBatch()));
+    deque.close();
+  }
+
+  @Test
+  public void close() {
+    SpillingRecordDeque store = new SpillingRecordDeque(this.tempDir, 1, 1024, SERIALIZER);
+    for (int i = 0; i < 5; i++) {
+      store.add(newRecord("foo", i, "value" + i));
+    }
+    assertEquals(1, store.segments());
+    store.close();
+    assertEquals(0, store.segments());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  public void serializerRequired() {
+    assertThrows(IllegalArgumentException.class, () -> SourceRecordDequeBuilder.of()
+        .spillDirectory(this.tempDir)
+        .build()
+    );
+  }
+
+  @Test
+  public void bytes() {
+    SourceRecordDequeImpl deque = (SourceRecordDequeImpl) SourceRecordDequeBuilder.of()
+        .spillDirectory(this.tempDir)
+        .spillThreshold(1)
+        .spillSerializer(SERIALIZER)
+        .maximumCapacityBytes(1000)
+        // Copies read back from disk have a new topic string, so they weigh less than the originals.
+        .sizeEstimator(record -> "foo" == record.topic() ? 100L : 10L)
+        .build();
+    for (int i = 0; i < 5; i++) {
+      deque.add(newRecord("foo", i, "value" + i));
+    }
+    assertEquals(500, deque.bytes());
+    assertEquals(5, deque.getBatch().size());
+    assertEquals(0, deque.bytes());
+    deque.close();
+  }
+
+  @Test
+  public void maximumCapacityBytesSpills() {
+    SourceRecordDequeImpl deque = (SourceRecordDequeImpl) SourceRecordDequeBuilder.of()
+        .spillDirectory(this.tempDir)
+        .spillThreshold(100)
+        .spillSerializer(SERIALIZER)
+        .maximumCapacityBytes(250)
+        .maximumCapacityTimeoutMs(100)
+        .sizeEstimator(record -> 100L)
+        .build();
+    for (int i = 0; i < 10; i++) {
+      deque.add(newRecord("foo", i, "value" + i));
+    }
+    SpillingRecordDeque store = (SpillingRecordDeque) deque.delegate();
+    assertEquals(7, store.spilled());
+    assertEquals(300, store.memoryBytes());
+    assertEquals(1000, deque.bytes());
+    List<SourceRecord> batch = deque.getBatch();
+    assertEquals(10, batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      assertEquals(i, batch.get(i).sourceOffset().get("offset"));
+    }
+    assertEquals(0, store.memoryBytes());
+    assertEquals(0, deque.bytes());
+    deque.close();
+  }
+
+  @Test
+  public void drainLatencySpilled() {
+    Time time = mock(Time.class);
+    try (Metrics metrics = new Metrics()) {
+      SourceRecordDequeBuilder builder = SourceRecordDequeBuilder.of()
+          .spillDirectory(this.tempDir)
+          .spillThreshold(1)
+          .spillSerializer(SERIALIZER)
+          .metrics(metrics)
+          .metricTags(ImmutableMap.of("task", "0"));
+      builder.time = time;
+      SourceRecordDeque deque = builder.build();
+      MetricName maximum = metrics.metricName("drain-latency-max-ms", SourceRecordDequeMetrics.GROUP, ImmutableMap.of("task", "0"));
+
+      when(time.nanoseconds()).thenReturn(0L);
+      deque.add(newRecord("foo", 0, "value0"));
+      deque.add(newRecord("foo", 1, "value1"));
+      when(time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(10));
+      assertEquals(0, offsets(List.of(deque.poll())).get(0));
+      assertEquals(10D, metrics.metric(maximum).metricValue());
+
+      // The traced record goes to disk because record 1 is still spilled.
+      when(time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(20));
+      deque.add(newRecord("foo", 2, "value2"));
+      when(time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(70));
+      assertEquals(List.of(1, 2), offsets(List.of(deque.poll(), deque.poll())));
+      assertEquals(50D, metrics.metric(maximum).metricValue());
+
+      deque.add(newRecord("foo", 3, "value3"));
+      when(time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(170));
+      assertEquals(3, offsets(List.of(deque.poll())).get(0));
+      assertEquals(100D, metrics.metric(maximum).metricValue());
+      deque.close();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StructPathTest {
+  static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct()
+      .optional()
+      .field("city", Schema.OPTIONAL_STRING_SCHEMA)
+      .build();
+  static final Schema SCHEMA = SchemaBuilder.struct()
+      .field("id", Schema.INT64_SCHEMA)
+      .field("address", ADDRESS_SCHEMA)
+      .build();
+
+  @Test
+  public void getAndPut() {
+    final StructPath path = StructPath.of("address.city");
+    final Struct struct = new Struct(SCHEMA)
+        .put("id", 1L)
+        .put("address", new Struct(ADDRESS_SCHEMA).put("city", "Austin"));
+    assertTrue(path.matches(SCHEMA));
+    assertSame(ADDRESS_SCHEMA.field("city"), path.field(SCHEMA));
+    assertEquals("Austin", path.get(struct));
+    assertSame(struct, path.put(struct, "Dallas"));
+    assertEquals("Dallas", struct.getStruct("address").getString("city"));
+    assertSame(path.fields(SCHEMA), path.fields(SCHEMA));
+  }
+
+  @Test
+  public void nullParent() {
+    final StructPath path = StructPath.of("address.city");
+    final Struct struct = new Struct(SCHEMA).put("id", 1L);
+    assertNull(path.get(struct));
+    assertThrows(DataException.class, () -> path.put(struct, "Dallas"));
+  }
+
+  @Test
+  public void schemaChanged() {
+    final StructPath path = StructPath.of("address.city");
+    final Schema flat = SchemaBuilder.struct()
+        .field("address", Schema.STRING_SCHEMA)
+        .build();
+    assertFalse(path.matches(flat));
+    assertNull(path.field(flat));
+    assertThrows(DataException.class, () -> path.get(new Struct(flat).put("address", "foo")));
+
+    final Struct struct = new Struct(SCHEMA)
+        .put("id", 1L)
+        .put("address", new Struct(ADDRESS_SCHEMA).put("city", "Austin"));
+    assertEquals("Austin", path.get(struct));
+    assertEquals(1L, StructPath.of("id").get(struct));
+  }
+
+  @Test
+  public void invalidPath() {
+    assertThrows(IllegalArgumentException.class, () -> StructPath.of("address..city"));
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.utils.data;
+
+import org.apache.kafka.common.utils.Time;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenBucketTest {
+  Time time;
+
+  @BeforeEach
+  public void before() {
+    this.time = mock(Time.class);
+    when(this.time.nanoseconds()).thenReturn(0L);
+  }
+
+  @Test
+  public void tryAcquire() {
+    TokenBucket bucket = new TokenBucket(this.time, 10, 1);
+    assertTrue(bucket.tryAcquire(10));
+    assertFalse(bucket.tryAcquire(1));
+    assertEquals(1, bucket.rejectedCount());
+
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(bucket.tryAcquire(5));
+    assertFalse(bucket.tryAcquire(1));
+
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.SECONDS.toNanos(60));
+    assertTrue(bucket.tryAcquire(10));
+    assertFalse(bucket.tryAcquire(1), "Bucket should not hold more than the burst size.");
+  }
+
+  @Test
+  public void tryAcquireLargerThanBurst() {
+    TokenBucket bucket = new TokenBucket(this.time, 10, 1);
+    assertTrue(bucket.tryAcquire(25), "Request larger than the burst should be allowed on a full bucket.");
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.SECONDS.toNanos(1));
+    assertFalse(bucket.tryAcquire(1), "Bucket should still be in debt.");
+  }
+
+  @Test
+  public void acquire() {
+    TokenBucket bucket = new TokenBucket(this.time, 10, 1);
+    assertEquals(0L, bucket.acquire(10));
+    verify(this.time, never()).sleep(0L);
+    assertEquals(500L, bucket.acquire(5));
+    verify(this.time).sleep(500L);
+    assertEquals(1, bucket.throttledCount());
+    assertEquals(500L, bucket.throttledTimeMs());
+  }
+
+  @Test
+  public void release() {
+    TokenBucket bucket = new TokenBucket(this.time, 10, 1);
+    assertTrue(bucket.tryAcquire(10));
+    bucket.release(4);
+    assertTrue(bucket.tryAcquire(4));
+    assertFalse(bucket.tryAcquire(1));
+    bucket.release(100);
+    assertTrue(bucket.tryAcquire(10));
+    assertFalse(bucket.tryAcquire(1), "Released permits should be capped at the burst size.");
+  }
+
+  @Test
+  public void rate() {
+    TokenBucket bucket = new TokenBucket(this.time, 10, 1);
+    assertTrue(bucket.tryAcquire(10));
+    bucket.rate(100);
+    assertEquals(100D, bucket.rate());
+    when(this.time.nanoseconds()).thenReturn(TimeUnit.MILLISECONDS.toNanos(100));
+    assertTrue(bucket.tryAcquire(10));
+    assertThrows(IllegalArgumentException.class, () -> bucket.rate(0));
+  }
+}
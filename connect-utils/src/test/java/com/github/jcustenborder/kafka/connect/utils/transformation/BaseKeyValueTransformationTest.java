@@ -4,11 +4,20 @@ import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.jupiter.api.Test;
 
+import java.util.Date;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class BaseKeyValueTransformationTest {
   static class Base<R extends ConnectRecord<R>> extends BaseKeyValueTransformation<R> {
 
@@ -40,6 +49,37 @@ public class BaseKeyValueTransformationTest {
     protected SchemaAndValue processString(R record, Schema inputSchema, String input) {
       return new SchemaAndValue(inputSchema, input);
     }
+
+    @Override
+    protected SchemaAndValue processInt64(R record, Schema inputSchema, long input) {
+      return new SchemaAndValue(inputSchema, input + 1);
+    }
+
+    @Override
+    protected SchemaAndValue processTimestamp(R record, Schema inputSchema, Date input) {
+      return new SchemaAndValue(inputSchema, new Date(input.getTime() - 1));
+    }
+  }
+
+  static class RenameTransformation<R extends ConnectRecord<R>> extends Base<R> {
+    RenameTransformation() {
+      super(false);
+    }
+
+    @Override
+    protected Schema buildOutputSchema(Schema inputSchema) {
+      final SchemaBuilder builder = SchemaBuilder.struct();
+      inputSchema.fields().forEach(field -> builder.field(field.name().toUpperCase(), field.schema()));
+      return builder.build();
+    }
+
+    @Override
+    protected SchemaAndValue processStruct(R record, Schema inputSchema, Struct input) {
+      final Schema outputSchema = outputSchema(inputSchema);
+      final Struct result = new Struct(outputSchema);
+      inputSchema.fields().forEach(field -> result.put(field.name().toUpperCase(), input.get(field)));
+      return new SchemaAndValue(outputSchema, result);
+    }
   }
 
   @Test
@@ -57,4 +97,72 @@ public class BaseKeyValueTransformationTest {
     transformation.apply(record);
   }
 
+  @Test
+  public void dispatch() {
+    StringTransformation<SinkRecord> transformation = new StringTransformation<>();
+    for (long i = 0; i < 10; i++) {
+      SinkRecord record = new SinkRecord("testing", 1, Schema.INT64_SCHEMA, i, null, null, 123451L);
+      assertEquals(i + 1, transformation.apply(record).key());
+      record = new SinkRecord("testing", 1, Timestamp.SCHEMA, new Date(i), null, null, 123451L);
+      assertEquals(new Date(i - 1), transformation.apply(record).key());
+    }
+
+    final SinkRecord record = new SinkRecord("testing", 1, Schema.BOOLEAN_SCHEMA, true, null, null, 123451L);
+    assertThrows(UnsupportedOperationException.class, () -> transformation.apply(record));
+  }
+
+  @Test
+  public void directProcess() {
+    StringTransformation<SinkRecord> transformation = new StringTransformation<SinkRecord>() {
+      @Override
+      protected boolean useDirectProcess() {
+        return true;
+      }
+
+      @Override
+      protected SchemaAndValue process(SinkRecord record, SchemaAndValue input) {
+        throw new AssertionError("process(R, SchemaAndValue) should not be called.");
+      }
+    };
+    final SinkRecord record = new SinkRecord("testing", 1, Schema.INT64_SCHEMA, 1234L, null, null, 123451L);
+    assertEquals(1235L, transformation.apply(record).key());
+    final SinkRecord schemaless = new SinkRecord("testing", 1, null, "foo", null, null, 123451L);
+    assertEquals("foo", transformation.apply(schemaless).key());
+  }
+
+  @Test
+  public void outputSchemaCached() {
+    final Schema first = SchemaBuilder.struct().field("id", Schema.INT64_SCHEMA).build();
+    final Schema second = SchemaBuilder.struct().field("name", Schema.STRING_SCHEMA).build();
+    RenameTransformation<SinkRecord> transformation = new RenameTransformation<>();
+
+    Schema outputSchema = null;
+    for (long i = 0; i < 10; i++) {
+      final SinkRecord record = new SinkRecord("testing", 1, null, null, first, new Struct(first).put("id", i), 123451L);
+      final SinkRecord result = transformation.apply(record);
+      if (null != outputSchema) {
+        assertSame(outputSchema, result.valueSchema());
+      }
+      outputSchema = result.valueSchema();
+      assertEquals(i, ((Struct) result.value()).get("ID"));
+    }
+    transformation.apply(new SinkRecord("testing", 1, null, null, second, new Struct(second).put("name", "foo"), 123451L));
+
+    assertEquals(9, transformation.outputSchemaCacheStats().hitCount());
+    assertEquals(2, transformation.outputSchemaCacheStats().missCount());
+  }
+
+  @Test
+  public void unchangedRecordReturned() {
+    StringTransformation<SinkRecord> transformation = new StringTransformation<>();
+    final SinkRecord unchanged = new SinkRecord("testing", 1, Schema.STRING_SCHEMA, "foo", null, null, 123451L);
+    assertSame(unchanged, transformation.apply(unchanged));
+
+    final SinkRecord changed = new SinkRecord("testing", 1, Schema.INT64_SCHEMA, 1234L, Schema.STRING_SCHEMA, "bar", 123451L);
+    final SinkRecord result = transformation.apply(changed);
+    assertNotSame(changed, result);
+    assertEquals(1235L, result.key());
+    assertSame(changed.value(), result.value());
+    assertSame(changed.valueSchema(), result.valueSchema());
+  }
 }
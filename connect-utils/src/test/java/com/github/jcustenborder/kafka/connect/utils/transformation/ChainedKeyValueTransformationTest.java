@@ -0,0 +1,121 @@
+package com.github.jcustenborder.kafka.connect.utils.transformation;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChainedKeyValueTransformationTest {
+  static class AppendTransformation<R extends ConnectRecord<R>> extends BaseKeyValueTransformationTest.Base<R> {
+    String suffix;
+
+    AppendTransformation(boolean isKey, String suffix) {
+      super(isKey);
+      this.suffix = suffix;
+    }
+
+    @Override
+    public void configure(Map<String, ?> settings) {
+      this.suffix = (String) settings.get("suffix");
+    }
+
+    @Override
+    protected SchemaAndValue processString(R record, Schema inputSchema, String input) {
+      return new SchemaAndValue(inputSchema, input + this.suffix);
+    }
+  }
+
+  public static class AppendKey<R extends ConnectRecord<R>> extends AppendTransformation<R> {
+    public AppendKey() {
+      super(true, "");
+    }
+  }
+
+  public static class AppendValue<R extends ConnectRecord<R>> extends AppendTransformation<R> {
+    public AppendValue() {
+      super(false, "");
+    }
+  }
+
+  public static class OverridesApply<R extends ConnectRecord<R>> extends AppendTransformation<R> {
+    public OverridesApply() {
+      super(false, "");
+    }
+
+    @Override
+    public R apply(R record) {
+      return null;
+    }
+  }
+
+  @Test
+  public void matchesSequentialApply() {
+    final AppendTransformation<SinkRecord> first = new AppendTransformation<>(false, "-a");
+    final AppendTransformation<SinkRecord> second = new AppendTransformation<>(true, "-b");
+    final AppendTransformation<SinkRecord> third = new AppendTransformation<>(false, "-c");
+    final ChainedKeyValueTransformation<SinkRecord> chain = ChainedKeyValueTransformation.of(first, second, third);
+
+    final SinkRecord record = new SinkRecord(
+        "testing", 1, Schema.STRING_SCHEMA, "key", Schema.STRING_SCHEMA, "value", 123451L
+    );
+    final SinkRecord expected = third.apply(second.apply(first.apply(record)));
+    final SinkRecord actual = chain.apply(record);
+    assertEquals(expected, actual);
+    assertEquals("key-b", actual.key());
+    assertEquals("value-a-c", actual.value());
+  }
+
+  @Test
+  public void unchanged() {
+    final BaseKeyValueTransformation<SinkRecord> first = new BaseKeyValueTransformationTest.StringTransformation<>();
+    final BaseKeyValueTransformation<SinkRecord> second = new BaseKeyValueTransformationTest.StringTransformation<>();
+    final ChainedKeyValueTransformation<SinkRecord> chain = ChainedKeyValueTransformation.of(first, second);
+    final SinkRecord record = new SinkRecord("testing", 1, Schema.STRING_SCHEMA, "key", null, null, 123451L);
+    assertSame(record, chain.apply(record));
+  }
+
+  @Test
+  public void overridesApply() {
+    final BaseKeyValueTransformation<SinkRecord> stage = new OverridesApply<>();
+    assertThrows(IllegalArgumentException.class, () -> ChainedKeyValueTransformation.of(stage));
+  }
+
+  @Test
+  public void configure() {
+    final ChainedKeyValueTransformation<SinkRecord> chain = new ChainedKeyValueTransformation<>();
+    chain.configure(
+        ImmutableMap.of(
+            "stages", String.join(",", AppendValue.class.getName(), AppendKey.class.getName(), AppendValue.class.getName()),
+            "stages.0.suffix", "-a",
+            "stages.1.suffix", "-b",
+            "stages.2.suffix", "-c"
+        )
+    );
+    assertEquals(3, chain.stages().size());
+    final SinkRecord record = new SinkRecord(
+        "testing", 1, Schema.STRING_SCHEMA, "key", Schema.STRING_SCHEMA, "value", 123451L
+    );
+    final SinkRecord actual = chain.apply(record);
+    assertEquals("key-b", actual.key());
+    assertEquals("value-a-c", actual.value());
+  }
+
+  @Test
+  public void configureInvalidStages() {
+    final ChainedKeyValueTransformation<SinkRecord> chain = new ChainedKeyValueTransformation<>();
+    assertThrows(ConfigException.class, () -> chain.configure(ImmutableMap.of()));
+    assertThrows(ConfigException.class, () -> chain.configure(ImmutableMap.of("stages", "")));
+    assertThrows(ConfigException.class, () -> chain.configure(ImmutableMap.of("stages", "com.example.DoesNotExist")));
+    assertThrows(ConfigException.class, () -> chain.configure(ImmutableMap.of("stages", String.class.getName())));
+    assertThrows(ConfigException.class, () -> chain.configure(ImmutableMap.of("stages", OverridesApply.class.getName())));
+  }
+}